@@ -10,7 +10,8 @@ CREATE TABLE users
     token            VARCHAR(100),
     roken_expired_at BIGINT,
     PRIMARY KEY (username),
-    UNIQUE (token)
+    UNIQUE (token),
+    INDEX idx_users_roken_expired_at (roken_expired_at)
 ) ENGINE InnoDB;
 
 SELECT *
@@ -51,4 +52,62 @@ CREATE TABLE address
 SELECT *
 FROM address;
 
-SELECT * FROM users WHERE token = '506a27d0-ec68-492c-928a-12c89f1566a8';
\ No newline at end of file
+SELECT * FROM users WHERE token = '506a27d0-ec68-492c-928a-12c89f1566a8';
+CREATE TABLE sessions
+(
+    token_hash CHAR(64)     NOT NULL,
+    username   VARCHAR(100) NOT NULL,
+    expired_at BIGINT       NOT NULL,
+    created_at BIGINT       NOT NULL,
+    PRIMARY KEY (token_hash),
+    INDEX idx_sessions_username (username),
+    INDEX idx_sessions_expired_at (expired_at),
+    FOREIGN KEY fk_users_sessions (username) REFERENCES users (username)
+) ENGINE InnoDB;
+
+-- contact search indexes used by app.contact.search-backend=fulltext;
+-- stopwords are disabled first, otherwise the ngram parser drops every bigram containing one.
+-- The session value in effect when an index is built is the one it keeps, so run this again
+-- in the same session before anything that rebuilds these indexes
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+ALTER TABLE contacts
+    ADD FULLTEXT INDEX ft_contacts_name (first_name, last_name) WITH PARSER ngram,
+    ADD FULLTEXT INDEX ft_contacts_email (email) WITH PARSER ngram,
+    ADD INDEX idx_contacts_username_phone (username, phone);
+
+-- keyset paging order for GET /api/contacts?cursor=
+ALTER TABLE contacts
+    ADD INDEX idx_contacts_username_name (username, last_name, first_name, id);
+
+-- ETags: per-contact optimistic lock version and per-user collection version
+ALTER TABLE contacts
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE users
+    ADD COLUMN contacts_version BIGINT NOT NULL DEFAULT 0;
+
+-- canonical digits form of contacts.phone for exact and prefix phone search, see PhoneNumbers;
+-- existing rows are filled in by PhoneBackfillJob
+ALTER TABLE contacts
+    ADD COLUMN phone_normalized VARCHAR(100) NULL AFTER phone,
+    DROP INDEX idx_contacts_username_phone,
+    ADD INDEX idx_contacts_username_phone_normalized (username, phone_normalized);
+
+-- addresses are removed with their contact, so a contact delete is a single statement.
+-- The table above names only the foreign key's index, so the constraint itself is called
+-- fk_contacts_address before MySQL 8.0.16 and address_ibfk_1 from then on; look it up
+SELECT CONSTRAINT_NAME
+INTO @fk_contacts_address
+FROM information_schema.REFERENTIAL_CONSTRAINTS
+WHERE CONSTRAINT_SCHEMA = DATABASE()
+  AND TABLE_NAME = 'address'
+  AND REFERENCED_TABLE_NAME = 'contacts';
+
+SET @drop_fk_contacts_address = CONCAT('ALTER TABLE address DROP FOREIGN KEY `', @fk_contacts_address, '`');
+PREPARE drop_fk_contacts_address FROM @drop_fk_contacts_address;
+EXECUTE drop_fk_contacts_address;
+DEALLOCATE PREPARE drop_fk_contacts_address;
+
+ALTER TABLE address
+    ADD CONSTRAINT fk_contacts_address FOREIGN KEY (contact_id) REFERENCES contacts (id) ON DELETE CASCADE;
@@ -0,0 +1,72 @@
+package fuad.hamidan;
+
+import com.zaxxer.hikari.HikariDataSource;
+import fuad.hamidan.datasource.ReadYourWrites;
+import fuad.hamidan.datasource.ReplicaBalancing;
+import fuad.hamidan.datasource.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single auto-configured datasource with primary plus read replicas once
+ * {@code app.datasource.replicas} lists at least one JDBC URL. Replicas use the primary's driver and
+ * credentials, each with its own pool of {@code replica-pool-size} connections.
+ * <p>
+ * The {@code read-your-writes} pin lives in the memory of the node that handled the write. Behind a load
+ * balancer without sticky sessions, the user's next request can land on another node, which does not know about
+ * the write and may read from a replica that has not caught up yet. Either route a user's requests to the same
+ * node, or only enable replicas for reads that tolerate that lag.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(DataSourceProperties properties,
+                                                      HikariDataSource primaryDataSource,
+                                                      ReadYourWrites readYourWrites,
+                                                      MeterRegistry meterRegistry,
+                                                      @Value("${app.datasource.replicas}") List<String> urls,
+                                                      @Value("${app.datasource.replica-pool-size:10}") int poolSize,
+                                                      @Value("${app.datasource.replica-balancing:round-robin}") ReplicaBalancing balancing) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url.strip()).build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, balancing, readYourWrites, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
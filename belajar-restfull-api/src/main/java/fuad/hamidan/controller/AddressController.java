@@ -0,0 +1,80 @@
+package fuad.hamidan.controller;
+
+import fuad.hamidan.model.AddressResponse;
+import fuad.hamidan.model.CreateAddressRequest;
+import fuad.hamidan.model.UpdateAddressRequest;
+import fuad.hamidan.model.WebResponse;
+import fuad.hamidan.security.UserPrincipal;
+import fuad.hamidan.service.AddressService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+public class AddressController {
+
+    @Autowired
+    private AddressService addressService;
+
+    @PostMapping(
+            path = "/api/contacts/{contactId}/addresses",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<AddressResponse> create(UserPrincipal principal,
+                                               @RequestBody CreateAddressRequest request,
+                                               @PathVariable("contactId") String contactId){
+        request.setContactId(contactId);
+        AddressResponse response = addressService.create(principal, request);
+        return WebResponse.<AddressResponse>builder().data(response).build();
+    }
+
+    @GetMapping(
+            path = "/api/contacts/{contactId}/addresses/{addressId}",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<AddressResponse> get(UserPrincipal principal,
+                                            @PathVariable("contactId") String contactId,
+                                            @PathVariable("addressId") String addressId){
+        AddressResponse response = addressService.get(principal, contactId, addressId);
+        return WebResponse.<AddressResponse>builder().data(response).build();
+    }
+
+    @PutMapping(
+            path = "/api/contacts/{contactId}/addresses/{addressId}",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<AddressResponse> update(UserPrincipal principal,
+                                               @RequestBody UpdateAddressRequest request,
+                                               @PathVariable("contactId") String contactId,
+                                               @PathVariable("addressId") String addressId){
+        request.setContactId(contactId);
+        request.setAddressId(addressId);
+        AddressResponse response = addressService.update(principal, request);
+        return WebResponse.<AddressResponse>builder().data(response).build();
+    }
+
+    @DeleteMapping(
+            path = "/api/contacts/{contactId}/addresses/{addressId}",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<String> remove(UserPrincipal principal,
+                                      @PathVariable("contactId") String contactId,
+                                      @PathVariable("addressId") String addressId){
+        addressService.remove(principal, contactId, addressId);
+        return WebResponse.<String>builder().data("OK").build();
+    }
+
+    @GetMapping(
+            path = "/api/contacts/{contactId}/addresses",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<List<AddressResponse>> list(UserPrincipal principal,
+                                                   @PathVariable("contactId") String contactId){
+        List<AddressResponse> responses = addressService.list(principal, contactId);
+        return WebResponse.<List<AddressResponse>>builder().data(responses).build();
+    }
+}
@@ -1,10 +1,12 @@
 package fuad.hamidan.controller;
 
-import fuad.hamidan.entity.User;
 import fuad.hamidan.model.LoginUserRequest;
 import fuad.hamidan.model.TokenResponse;
 import fuad.hamidan.model.WebResponse;
+import fuad.hamidan.security.LoginThrottle;
+import fuad.hamidan.security.UserPrincipal;
 import fuad.hamidan.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -18,12 +20,16 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private LoginThrottle loginThrottle;
+
     @PostMapping(
             path = "/api/auth/login",
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<TokenResponse> login(@RequestBody LoginUserRequest request){
+    public WebResponse<TokenResponse> login(@RequestBody LoginUserRequest request, HttpServletRequest servletRequest){
+        loginThrottle.acquire(request.getUsername(), servletRequest.getRemoteAddr());
         TokenResponse tokenResponse = authService.login(request);
         return WebResponse.<TokenResponse>builder().data(tokenResponse).build();
     }
@@ -32,8 +38,8 @@ public class AuthController {
             path = "/api/auth/logout",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<String> logout(User user){
-        authService.logout(user);
+    public WebResponse<String> logout(UserPrincipal principal){
+        authService.logout(principal);
         return WebResponse.<String>builder().data("OK").build();
     }
 
@@ -1,13 +1,36 @@
 package fuad.hamidan.controller;
 
-import fuad.hamidan.entity.User;
-import fuad.hamidan.model.*;
+import fuad.hamidan.model.BulkContactResponse;
+import fuad.hamidan.model.BulkDeleteContactRequest;
+import fuad.hamidan.model.BulkUpdateContactRequest;
+import fuad.hamidan.model.BulkWriteResponse;
+import fuad.hamidan.model.ContactCursor;
+import fuad.hamidan.model.ContactResponse;
+import fuad.hamidan.model.CreateContactRequest;
+import fuad.hamidan.model.ImportJobResponse;
+import fuad.hamidan.model.PagingResponse;
+import fuad.hamidan.model.SearchContactRequest;
+import fuad.hamidan.model.UpdateContactRequest;
+import fuad.hamidan.model.WebResponse;
+import fuad.hamidan.security.UserPrincipal;
+import fuad.hamidan.service.AddressService;
+import fuad.hamidan.service.ContactExportService;
+import fuad.hamidan.service.ContactImportFormat;
+import fuad.hamidan.service.ContactImportService;
 import fuad.hamidan.service.ContactService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -16,30 +39,118 @@ public class ContactController {
     @Autowired
     private ContactService contactService;
 
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private ContactExportService contactExportService;
+
+    @Autowired
+    private ContactImportService contactImportService;
+
     @PostMapping(
             path = "/api/contacts",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<ContactResponse> create(User user, @RequestBody CreateContactRequest request){
-        ContactResponse response = contactService.createContact(user, request);
+    public WebResponse<ContactResponse> create(UserPrincipal principal, @RequestBody CreateContactRequest request){
+        ContactResponse response = contactService.createContact(principal, request);
         return WebResponse.<ContactResponse>builder().data(response).build();
     }
 
+    @PostMapping(
+            path = "/api/contacts/bulk",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<List<BulkContactResponse>> createBulk(UserPrincipal principal, @RequestBody List<CreateContactRequest> request){
+        List<BulkContactResponse> response = contactService.createContacts(principal, request);
+        return WebResponse.<List<BulkContactResponse>>builder().data(response).build();
+    }
+
+    @PatchMapping(
+            path = "/api/contacts/bulk",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<BulkWriteResponse> updateBulk(UserPrincipal principal, @RequestBody BulkUpdateContactRequest request){
+        BulkWriteResponse response = contactService.updateContacts(principal, request);
+        return WebResponse.<BulkWriteResponse>builder().data(response).build();
+    }
+
+    @DeleteMapping(
+            path = "/api/contacts/bulk",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<BulkWriteResponse> deleteBulk(UserPrincipal principal, @RequestBody BulkDeleteContactRequest request){
+        BulkWriteResponse response = contactService.deleteContacts(principal, request);
+        return WebResponse.<BulkWriteResponse>builder().data(response).build();
+    }
+
+    @GetMapping(
+            path = "/api/contacts/export",
+            produces = MediaType.APPLICATION_NDJSON_VALUE
+    )
+    public ResponseEntity<StreamingResponseBody> export(UserPrincipal principal){
+        StreamingResponseBody body = outputStream -> contactExportService.export(principal.username(), outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"contacts.ndjson\"")
+                .body(body);
+    }
+
+    @PostMapping(
+            path = "/api/contacts/import",
+            consumes = {ContactImportFormat.CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<WebResponse<ImportJobResponse>> importContacts(UserPrincipal principal, HttpServletRequest servletRequest) throws IOException {
+        ImportJobResponse response = contactImportService.start(principal,
+                ContactImportFormat.of(servletRequest.getContentType()), servletRequest.getInputStream());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/contacts/import/" + response.getId()))
+                .body(WebResponse.<ImportJobResponse>builder().data(response).build());
+    }
+
+    @GetMapping(
+            path = "/api/contacts/import/{jobId}",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<ImportJobResponse> importStatus(UserPrincipal principal, @PathVariable("jobId") String jobId){
+        ImportJobResponse response = contactImportService.get(principal, jobId);
+        return WebResponse.<ImportJobResponse>builder().data(response).build();
+    }
+
+    @GetMapping(
+            path = "/api/contacts/suggest",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<List<ContactResponse>> suggest(UserPrincipal principal,
+                                                      @RequestParam(value = "q", required = false, defaultValue = "") String query,
+                                                      @RequestParam(value = "limit", required = false, defaultValue = "10") Integer limit){
+        List<ContactResponse> response = contactService.suggest(principal, query, limit);
+        return WebResponse.<List<ContactResponse>>builder().data(response).build();
+    }
+
     @GetMapping(
             path = "/api/contacts/{idContact}",
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<ContactResponse> get(User user, @PathVariable("idContact") String idContact){
-        ContactResponse response = contactService.get(user, idContact);
+    public WebResponse<ContactResponse> get(UserPrincipal principal, @PathVariable("idContact") String idContact, WebRequest webRequest){
+        if (webRequest.checkNotModified(contactService.etag(principal, idContact))) {
+            return null;
+        }
+
+        ContactResponse response = contactService.get(principal, idContact);
         return WebResponse.<ContactResponse>builder().data(response).build();
     }
 
     @PutMapping(
             path = "/api/contacts/{idContact}"
     )
-    public WebResponse<ContactResponse> update(User user, @RequestBody UpdateContactRequest request, @PathVariable("idContact") String idContact){
-        ContactResponse response = contactService.update(user, request, idContact);
+    public WebResponse<ContactResponse> update(UserPrincipal principal, @RequestBody UpdateContactRequest request, @PathVariable("idContact") String idContact){
+        ContactResponse response = contactService.update(principal, request, idContact);
         return WebResponse.<ContactResponse>builder().data(response).build();
     }
 
@@ -47,8 +158,8 @@ public class ContactController {
             path = "/api/contacts/{idContact}",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<String> delete(User user, @PathVariable("idContact") String idContact){
-        contactService.delete(user, idContact);
+    public WebResponse<String> delete(UserPrincipal principal, @PathVariable("idContact") String idContact){
+        contactService.delete(principal, idContact);
         return WebResponse.<String>builder().data("OK").build();
     }
 
@@ -56,15 +167,60 @@ public class ContactController {
             path = "/api/contacts",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<List<ContactResponse>> search(User user,
+    public WebResponse<List<ContactResponse>> search(UserPrincipal principal,
                                                      @RequestParam(value = "name", required = false) String name,
                                                      @RequestParam(value = "email", required = false) String email,
                                                      @RequestParam(value = "phone", required = false) String phone,
                                                      @RequestParam(value = "page", required = false, defaultValue = "0")Integer page,
-                                                     @RequestParam(value = "size", required = false, defaultValue = "10")Integer size
+                                                     @RequestParam(value = "size", required = false, defaultValue = "10")Integer size,
+                                                     @RequestParam(value = "cursor", required = false) String cursor,
+                                                     @RequestParam(value = "count", required = false, defaultValue = "true") Boolean count,
+                                                     @RequestParam(value = "addresses", required = false, defaultValue = "false") Boolean addresses,
+                                                     WebRequest webRequest
     ){
-        SearchContactRequest request = new SearchContactRequest(name, email, phone, page, size);
-        Page<ContactResponse> contactResponse = contactService.search(user, request);
+        if (webRequest.checkNotModified(contactService.searchEtag(principal))) {
+            return null;
+        }
+
+        SearchContactRequest request = new SearchContactRequest(name, email, phone, page, size, cursor);
+        if (cursor != null) {
+            Slice<ContactResponse> contactResponse = contactService.searchAfter(principal, request);
+            List<ContactResponse> content = contactResponse.getContent();
+            if (addresses) {
+                addressService.embed(content);
+            }
+            return WebResponse.<List<ContactResponse>>builder()
+                    .data(content)
+                    .page(PagingResponse.builder()
+                            .size(contactResponse.getSize())
+                            .nextCursor(contactResponse.hasNext()
+                                    ? ContactCursor.after(content.get(content.size() - 1)).encode()
+                                    : null)
+                            .build()
+                    )
+                    .build();
+        }
+
+        if (!count) {
+            Slice<ContactResponse> contactResponse = contactService.searchSlice(principal, request);
+            if (addresses) {
+                addressService.embed(contactResponse.getContent());
+            }
+            return WebResponse.<List<ContactResponse>>builder()
+                    .data(contactResponse.getContent())
+                    .page(PagingResponse.builder()
+                            .currentPage(contactResponse.getNumber())
+                            .size(contactResponse.getSize())
+                            .hasNext(contactResponse.hasNext())
+                            .build()
+                    )
+                    .build();
+        }
+
+        Page<ContactResponse> contactResponse = contactService.search(principal, request);
+        if (addresses) {
+            addressService.embed(contactResponse.getContent());
+        }
         return WebResponse.<List<ContactResponse>>builder()
                 .data(contactResponse.getContent())
                 .page(PagingResponse.builder()
@@ -20,6 +20,7 @@ public class ErrorController {
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<WebResponse<String>> apiException(ResponseStatusException exception){
         return ResponseEntity.status(exception.getStatusCode())
+                .headers(exception.getHeaders())
                 .body(WebResponse.<String>builder().errors(exception.getReason()).build());
     }
 }
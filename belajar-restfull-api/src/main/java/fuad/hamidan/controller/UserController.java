@@ -1,10 +1,10 @@
 package fuad.hamidan.controller;
 
-import fuad.hamidan.entity.User;
 import fuad.hamidan.model.RegisterUserRequest;
 import fuad.hamidan.model.UserResponse;
 import fuad.hamidan.model.UserUpdateRequest;
 import fuad.hamidan.model.WebResponse;
+import fuad.hamidan.security.UserPrincipal;
 import fuad.hamidan.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
@@ -30,8 +30,8 @@ public class UserController {
             path = "/api/user/current",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<UserResponse> get(User user) {
-        UserResponse response = userService.get(user);
+    public WebResponse<UserResponse> get(UserPrincipal principal) {
+        UserResponse response = userService.get(principal);
         return WebResponse.<UserResponse>builder().data(response).build();
     }
 
@@ -40,8 +40,8 @@ public class UserController {
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    private WebResponse<UserResponse> update(User user, @RequestBody UserUpdateRequest request) {
-        UserResponse response = userService.update(user, request);
+    private WebResponse<UserResponse> update(UserPrincipal principal, @RequestBody UserUpdateRequest request) {
+        UserResponse response = userService.update(principal, request);
         return WebResponse.<UserResponse>builder().data(response).build();
     }
 
@@ -0,0 +1,88 @@
+package fuad.hamidan.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks which user the current request thread works for and when each user last committed a write, so that
+ * {@link ReplicaRoutingDataSource} can keep that user's reads on the primary for {@code read-your-writes}
+ * after the write. A window of zero turns this off.
+ * <p>
+ * The user is bound by {@code UserArgumentResolver} and unbound when the request completes. Expired entries are
+ * dropped lazily, at most once a minute, like {@code TokenDenylist}.
+ * <p>
+ * Pins are per node and not shared: a write on one node does not keep the user's reads on another node on the
+ * primary. See {@code ReplicaDataSourceConfiguration}.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final long PURGE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final ThreadLocal<String> CURRENT_USER = new ThreadLocal<>();
+
+    private final long windowMillis;
+
+    private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastPurge = new AtomicLong();
+
+    public ReadYourWrites(@Value("${app.datasource.read-your-writes:0s}") Duration window) {
+        this.windowMillis = window.toMillis();
+    }
+
+    public void bind(String username) {
+        CURRENT_USER.set(username);
+    }
+
+    public void unbind() {
+        CURRENT_USER.remove();
+    }
+
+    public String currentUser() {
+        return CURRENT_USER.get();
+    }
+
+    public boolean isPinned(String username) {
+        Long until = pinnedUntil.get(username);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    /**
+     * Pins the user to the primary once the surrounding read-write transaction commits.
+     */
+    public void wroteOnCommit(String username) {
+        if (windowMillis <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wrote(username);
+            }
+        });
+    }
+
+    public void wrote(String username) {
+        if (windowMillis <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        pinnedUntil.put(username, now + windowMillis);
+
+        long last = lastPurge.get();
+        if (now - last >= PURGE_INTERVAL && lastPurge.compareAndSet(last, now)) {
+            pinnedUntil.values().removeIf(until -> until <= now);
+        }
+    }
+}
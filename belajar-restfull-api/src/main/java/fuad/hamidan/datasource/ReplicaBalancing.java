@@ -0,0 +1,9 @@
+package fuad.hamidan.datasource;
+
+public enum ReplicaBalancing {
+
+    ROUND_ROBIN,
+
+    // fewest connections currently borrowed from the replica's pool
+    LEAST_CONNECTIONS
+}
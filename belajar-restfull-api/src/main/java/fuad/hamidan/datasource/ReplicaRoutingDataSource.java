@@ -0,0 +1,115 @@
+package fuad.hamidan.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to one of the replicas and everything else to the primary.
+ * <p>
+ * Only reads made on behalf of a bound user are routed, see {@link ReadYourWrites}. Authentication and
+ * background jobs stay on the primary, since a token issued a moment ago may not have replicated yet. A user
+ * inside their read-your-writes window stays on the primary too. It must sit behind a
+ * {@code LazyConnectionDataSourceProxy}: the transaction manager opens the connection before the transaction is
+ * marked read-only, so the target is only picked at the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+
+    private final List<HikariDataSource> replicas;
+
+    private final ReplicaBalancing balancing;
+
+    private final ReadYourWrites readYourWrites;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Counter primaryConnections;
+
+    private final Counter replicaConnections;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, ReplicaBalancing balancing,
+                                    ReadYourWrites readYourWrites, MeterRegistry meterRegistry) {
+        this.replicas = replicas;
+        this.balancing = balancing;
+        this.readYourWrites = readYourWrites;
+        this.primaryConnections = Counter.builder("datasource.routing.connections").tag("target", "primary").register(meterRegistry);
+        this.replicaConnections = Counter.builder("datasource.routing.connections").tag("target", "replica").register(meterRegistry);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            primaryConnections.increment();
+            return PRIMARY;
+        }
+
+        String username = readYourWrites.currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (username != null) {
+                readYourWrites.wroteOnCommit(username);
+            }
+            primaryConnections.increment();
+            return PRIMARY;
+        }
+
+        if (username == null || replicas.isEmpty() || readYourWrites.isPinned(username)) {
+            primaryConnections.increment();
+            return PRIMARY;
+        }
+
+        replicaConnections.increment();
+        return balancing == ReplicaBalancing.LEAST_CONNECTIONS ? leastConnections() : roundRobin();
+    }
+
+    /**
+     * Closes the replica pools, which are not beans of their own. Called as the bean's inferred destroy method.
+     */
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+
+    private int roundRobin() {
+        return Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    // scans from a rotating start, so ties are spread instead of always going to the first replica
+    private int leastConnections() {
+        int start = roundRobin();
+        int best = start;
+        int fewest = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            int candidate = (start + i) % replicas.size();
+            int active = activeConnections(replicas.get(candidate));
+            if (active < fewest) {
+                best = candidate;
+                fewest = active;
+            }
+        }
+        return best;
+    }
+
+    private static int activeConnections(HikariDataSource replica) {
+        HikariPoolMXBean pool = replica.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+}
@@ -1,6 +1,8 @@
 package fuad.hamidan.entity;
 
+import fuad.hamidan.model.PhoneNumbers;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -27,12 +29,25 @@ public class Contact {
 
     private String phone;
 
+    // kept in step with phone by setPhone, see PhoneNumbers
+    @Setter(AccessLevel.NONE)
+    @Column(name = "phone_normalized")
+    private String phoneNormalized;
+
     private String email;
 
-    @ManyToOne
+    @Version
+    private Long version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "username", referencedColumnName = "username")
     private User user;
 
     @OneToMany(mappedBy = "contact")
     private List<Address> addresses;
+
+    public void setPhone(String phone) {
+        this.phone = phone;
+        this.phoneNormalized = PhoneNumbers.column(phone);
+    }
 }
@@ -0,0 +1,36 @@
+package fuad.hamidan.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "sessions", indexes = {
+        @Index(name = "idx_sessions_username", columnList = "username"),
+        @Index(name = "idx_sessions_expired_at", columnList = "expired_at")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+public class Session {
+
+    /**
+     * SHA-256 of the token handed to the client, the raw token is never stored.
+     */
+    @Id
+    @Column(name = "token_hash", length = 64)
+    private String tokenHash;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "username", referencedColumnName = "username")
+    private User user;
+
+    @Column(name = "expired_at")
+    private Long expiredAt;
+
+    @Column(name = "created_at")
+    private Long createdAt;
+}
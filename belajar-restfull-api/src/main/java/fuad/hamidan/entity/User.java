@@ -13,7 +13,9 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_roken_expired_at", columnList = "roken_expired_at")
+})
 public class User {
 
     @Id
@@ -28,6 +30,13 @@ public class User {
     @Column(name = "roken_expired_at")
     private Long tokenExpiredAt;
 
+    /**
+     * Bumped by every change to this user's contacts, the ETag of {@code GET /api/contacts}. Only written
+     * by {@code UserRepository.incrementContactsVersion}, so saving a stale User can never roll it back.
+     */
+    @Column(name = "contacts_version", updatable = false)
+    private Long contactsVersion = 0L;
+
     @OneToMany(mappedBy = "user")
     private List<Contact> contacts;
 }
@@ -0,0 +1,27 @@
+package fuad.hamidan.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+/**
+ * Status exception telling the client when it may try again through the {@code Retry-After} header.
+ */
+public class RetryAfterException extends ResponseStatusException {
+
+    private final Duration retryAfter;
+
+    public RetryAfterException(HttpStatusCode status, String reason, Duration retryAfter) {
+        super(status, reason);
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        return headers;
+    }
+}
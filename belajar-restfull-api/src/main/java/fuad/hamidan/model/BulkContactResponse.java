@@ -0,0 +1,19 @@
+package fuad.hamidan.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkContactResponse {
+
+    private Integer index;
+
+    private String id;
+
+    private String errors;
+}
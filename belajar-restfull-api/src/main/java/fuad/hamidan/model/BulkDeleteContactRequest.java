@@ -0,0 +1,20 @@
+package fuad.hamidan.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkDeleteContactRequest {
+
+    @NotEmpty
+    private List<@NotBlank String> ids;
+}
@@ -0,0 +1,38 @@
+package fuad.hamidan.model;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The same changes applied to every listed contact; fields left null are not touched.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkUpdateContactRequest {
+
+    @NotEmpty
+    private List<@NotBlank String> ids;
+
+    @Size(min = 1, max = 100)
+    private String firstName;
+
+    @Size(max = 100)
+    private String lastName;
+
+    @Size(max = 100)
+    @Email
+    private String email;
+
+    @Size(max = 100)
+    private String phone;
+}
@@ -0,0 +1,51 @@
+package fuad.hamidan.model;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last contact on a page in the {@code (lastName, firstName, id)} order, sent to clients as
+ * the opaque {@code nextCursor} string {@code base64url(lastName).base64url(firstName).base64url(id)}.
+ * A missing last name is written as {@code ~}.
+ */
+public record ContactCursor(String lastName, String firstName, String id) {
+
+    private static final String NULL = "~";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public static ContactCursor after(ContactResponse contact) {
+        return new ContactCursor(contact.getLastName(), contact.getFirstName(), contact.getId());
+    }
+
+    public String encode() {
+        return (lastName == null ? NULL : encode(lastName)) + "." + encode(firstName) + "." + encode(id);
+    }
+
+    public static ContactCursor decode(String cursor) {
+        String[] parts = cursor.split("\\.", -1);
+        if (parts.length != 3) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+
+        try {
+            String lastName = NULL.equals(parts[0]) ? null : decodePart(parts[0]);
+            return new ContactCursor(lastName, decodePart(parts[1]), decodePart(parts[2]));
+        } catch (IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    private static String encode(String value) {
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodePart(String value) {
+        return new String(DECODER.decode(value), StandardCharsets.UTF_8);
+    }
+}
@@ -1,10 +1,13 @@
 package fuad.hamidan.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -16,4 +19,12 @@ public class ContactResponse {
     private String lastName;
     private String email;
     private String phone;
+
+    // only filled when a search asks for them with addresses=true
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<AddressResponse> addresses;
+
+    public ContactResponse(String id, String firstName, String lastName, String email, String phone) {
+        this(id, firstName, lastName, email, phone, null);
+    }
 }
@@ -0,0 +1,17 @@
+package fuad.hamidan.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportErrorResponse {
+
+    private Integer row;
+
+    private String errors;
+}
@@ -0,0 +1,29 @@
+package fuad.hamidan.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportJobResponse {
+
+    private String id;
+
+    private String status;
+
+    private Integer processed;
+
+    private Integer imported;
+
+    private Integer rejected;
+
+    private List<ImportErrorResponse> errors;
+
+    private String message;
+}
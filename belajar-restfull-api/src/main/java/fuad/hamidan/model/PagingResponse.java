@@ -14,4 +14,6 @@ public class PagingResponse {
     private Integer currentPage;
     private Integer totalPage;
     private Integer size;
+    private String nextCursor;
+    private Boolean hasNext;
 }
@@ -0,0 +1,61 @@
+package fuad.hamidan.model;
+
+import java.util.Objects;
+
+/**
+ * Canonical digits-only form of phone numbers, so "+62 812-3456" and "0812 3456" compare equal.
+ * <p>
+ * Numbers with a {@code +} or {@code 00} prefix keep their own country code, numbers with a trunk {@code 0}
+ * get {@link #DEFAULT_COUNTRY_CODE}, anything else is kept as its digits.
+ */
+public final class PhoneNumbers {
+
+    public static final String DEFAULT_COUNTRY_CODE = "62";
+
+    private PhoneNumbers() {
+    }
+
+    /**
+     * Returns the canonical digits, or null when the value has no digits at all.
+     */
+    public static String normalize(String phone) {
+        if (Objects.isNull(phone)) {
+            return null;
+        }
+
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        if (digits.isEmpty()) {
+            return null;
+        }
+
+        if (phone.strip().startsWith("+")) {
+            return digits.toString();
+        }
+        if (digits.indexOf("00") == 0) {
+            return digits.substring(2);
+        }
+        if (digits.charAt(0) == '0') {
+            return DEFAULT_COUNTRY_CODE + digits.substring(1);
+        }
+        return digits.toString();
+    }
+
+    /**
+     * Returns the value kept in {@code contacts.phone_normalized}: the canonical digits, or an empty string when
+     * the phone has no digits, so that only rows nobody has normalized yet are left null.
+     */
+    public static String column(String phone) {
+        if (Objects.isNull(phone)) {
+            return null;
+        }
+
+        String normalized = normalize(phone);
+        return Objects.isNull(normalized) ? "" : normalized;
+    }
+}
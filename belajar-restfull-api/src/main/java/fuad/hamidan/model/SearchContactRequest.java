@@ -24,4 +24,6 @@ public class SearchContactRequest {
     @NotBlank
     private Integer size;
 
+    private String cursor;
+
 }
@@ -0,0 +1,36 @@
+package fuad.hamidan.model;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered UUIDs in the RFC 9562 version 7 layout: a 48-bit Unix millisecond timestamp, a 12-bit counter
+ * and 62 random bits.
+ * <p>
+ * New keys land at the right edge of the primary key B-tree instead of a random page. The counter keeps the ids
+ * of one JVM strictly increasing, even within a millisecond or when the clock steps back. Only use these for keys.
+ * The timestamp is readable and the random bits come from {@link ThreadLocalRandom}, so they are no substitute
+ * for a secret token.
+ */
+public final class UuidV7 {
+
+    // unix millis << 12 | counter of the last id handed out
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    public static UUID nextUuid() {
+        long now = System.currentTimeMillis() << 12;
+        long next = LAST.updateAndGet(last -> Math.max(last + 1, now));
+
+        long mostSigBits = (next >>> 12) << 16 | 0x7000L | (next & 0xFFFL);
+        long leastSigBits = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    public static String next() {
+        return nextUuid().toString();
+    }
+}
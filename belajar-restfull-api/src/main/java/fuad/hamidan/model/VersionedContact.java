@@ -0,0 +1,11 @@
+package fuad.hamidan.model;
+
+/**
+ * A contact response together with the {@code @Version} it was read at.
+ */
+public record VersionedContact(ContactResponse contact, long version) {
+
+    public VersionedContact(String id, String firstName, String lastName, String email, String phone, Long version) {
+        this(new ContactResponse(id, firstName, lastName, email, phone), version);
+    }
+}
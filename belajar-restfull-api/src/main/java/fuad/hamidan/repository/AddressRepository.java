@@ -0,0 +1,59 @@
+package fuad.hamidan.repository;
+
+import fuad.hamidan.entity.Address;
+import fuad.hamidan.model.AddressResponse;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AddressRepository extends JpaRepository<Address, String>, InsertRepository<Address> {
+
+    @Query("select new fuad.hamidan.model.AddressResponse(a.id, a.street, a.city, a.province, a.country, a.postalCode) " +
+            "from Address a join a.contact c " +
+            "where c.user.username = :username and c.id = :contactId and a.id = :id")
+    Optional<AddressResponse> findResponse(@Param("username") String username,
+                                           @Param("contactId") String contactId,
+                                           @Param("id") String id);
+
+    @Query("select new fuad.hamidan.model.AddressResponse(a.id, a.street, a.city, a.province, a.country, a.postalCode) " +
+            "from Address a where a.contact.id = :contactId order by a.id")
+    List<AddressResponse> findResponses(@Param("contactId") String contactId);
+
+    /**
+     * Addresses of a whole page of contacts in one statement, for embedding them in search results.
+     */
+    @Query("select a.contact.id as contactId, a.id as id, a.street as street, a.city as city, " +
+            "a.province as province, a.country as country, a.postalCode as postalCode " +
+            "from Address a where a.contact.id in :contactIds order by a.id")
+    List<AddressView> findViews(@Param("contactIds") Collection<String> contactIds);
+
+    @Modifying
+    @Query("update Address a set " +
+            "a.street = :street, " +
+            "a.city = :city, " +
+            "a.province = :province, " +
+            "a.country = :country, " +
+            "a.postalCode = :postalCode " +
+            "where a.id = :id and a.contact.id in " +
+            "(select c.id from Contact c where c.user.username = :username and c.id = :contactId)")
+    int update(@Param("username") String username,
+               @Param("contactId") String contactId,
+               @Param("id") String id,
+               @Param("street") String street,
+               @Param("city") String city,
+               @Param("province") String province,
+               @Param("country") String country,
+               @Param("postalCode") String postalCode);
+
+    @Modifying
+    @Query("delete from Address a where a.id = :id and a.contact.id in " +
+            "(select c.id from Contact c where c.user.username = :username and c.id = :contactId)")
+    int delete(@Param("username") String username, @Param("contactId") String contactId, @Param("id") String id);
+}
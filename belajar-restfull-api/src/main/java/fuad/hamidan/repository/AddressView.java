@@ -0,0 +1,18 @@
+package fuad.hamidan.repository;
+
+public interface AddressView {
+
+    String getContactId();
+
+    String getId();
+
+    String getStreet();
+
+    String getCity();
+
+    String getProvince();
+
+    String getCountry();
+
+    String getPostalCode();
+}
@@ -0,0 +1,8 @@
+package fuad.hamidan.repository;
+
+public interface ContactPhoneView {
+
+    String getId();
+
+    String getPhone();
+}
@@ -1,17 +1,84 @@
 package fuad.hamidan.repository;
 
 import fuad.hamidan.entity.Contact;
-import fuad.hamidan.entity.User;
+import fuad.hamidan.model.ContactResponse;
+import fuad.hamidan.model.VersionedContact;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ContactRepository extends JpaRepository<Contact, String>, JpaSpecificationExecutor<Contact> {
+public interface ContactRepository extends JpaRepository<Contact, String>, JpaSpecificationExecutor<Contact>, ContactRepositoryCustom {
 
-    Optional<Contact> findFirstByUserAndId(User user, String id);
-}
+    boolean existsByUser_UsernameAndId(String username, String id);
+
+    @Query("select new fuad.hamidan.model.VersionedContact(c.id, c.firstName, c.lastName, c.email, c.phone, c.version) " +
+            "from Contact c where c.user.username = :username and c.id = :id")
+    Optional<VersionedContact> findVersioned(@Param("username") String username, @Param("id") String id);
+
+    @Query("select new fuad.hamidan.model.ContactResponse(c.id, c.firstName, c.lastName, c.email, c.phone) " +
+            "from Contact c where c.user.username = :username")
+    List<ContactResponse> findAllResponses(@Param("username") String username, Limit limit);
+
+    @Query("select c.version from Contact c where c.user.username = :username and c.id = :id")
+    Optional<Long> findVersion(@Param("username") String username, @Param("id") String id);
+
+    @Modifying
+    @Query("update Contact c set " +
+            "c.firstName = coalesce(:firstName, c.firstName), " +
+            "c.lastName = coalesce(:lastName, c.lastName), " +
+            "c.email = coalesce(:email, c.email), " +
+            "c.phone = coalesce(:phone, c.phone), " +
+            "c.phoneNormalized = case when :phone is null then c.phoneNormalized else :phoneNormalized end, " +
+            "c.version = c.version + 1 " +
+            "where c.user.username = :username and c.id in :ids")
+    int updateAll(@Param("username") String username,
+                  @Param("ids") List<String> ids,
+                  @Param("firstName") String firstName,
+                  @Param("lastName") String lastName,
+                  @Param("email") String email,
+                  @Param("phone") String phone,
+                  @Param("phoneNormalized") String phoneNormalized);
 
+    @Modifying
+    @Query("update Contact c set " +
+            "c.firstName = :firstName, " +
+            "c.lastName = :lastName, " +
+            "c.email = :email, " +
+            "c.phone = :phone, " +
+            "c.phoneNormalized = :phoneNormalized, " +
+            "c.version = c.version + 1 " +
+            "where c.user.username = :username and c.id = :id")
+    int update(@Param("username") String username,
+               @Param("id") String id,
+               @Param("firstName") String firstName,
+               @Param("lastName") String lastName,
+               @Param("email") String email,
+               @Param("phone") String phone,
+               @Param("phoneNormalized") String phoneNormalized);
 
+    @Query("select c.id as id, c.phone as phone from Contact c " +
+            "where c.id > :after and c.phone is not null and c.phoneNormalized is null order by c.id")
+    List<ContactPhoneView> findUnnormalizedPhones(@Param("after") String after, Limit limit);
+
+    @Modifying
+    @Query("update Contact c set c.phoneNormalized = :phoneNormalized where c.id = :id and c.phone = :phone")
+    int updatePhoneNormalized(@Param("id") String id,
+                              @Param("phone") String phone,
+                              @Param("phoneNormalized") String phoneNormalized);
+
+    @Modifying
+    @Query("delete from Contact c where c.user.username = :username and c.id = :id")
+    int delete(@Param("username") String username, @Param("id") String id);
+
+    @Modifying
+    @Query("delete from Contact c where c.user.username = :username and c.id in :ids")
+    int deleteAll(@Param("username") String username, @Param("ids") List<String> ids);
+}
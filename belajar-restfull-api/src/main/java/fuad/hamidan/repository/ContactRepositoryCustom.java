@@ -0,0 +1,25 @@
+package fuad.hamidan.repository;
+
+import fuad.hamidan.entity.Contact;
+import fuad.hamidan.model.ContactResponse;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface ContactRepositoryCustom {
+
+    /**
+     * Selects the five response columns of matching contacts straight into {@link ContactResponse},
+     * without loading or tracking {@link Contact} entities. Fetches one extra row to fill {@link Slice#hasNext()}.
+     */
+    Slice<ContactResponse> findResponses(Specification<Contact> specification, Pageable pageable);
+
+    /**
+     * Inserts new contacts with {@code persist}, flushing and clearing every JDBC batch so Hibernate sends
+     * them as batched INSERTs and the persistence context stays small. Detaches everything else in the
+     * current persistence context as well.
+     */
+    void persistAll(List<Contact> contacts);
+}
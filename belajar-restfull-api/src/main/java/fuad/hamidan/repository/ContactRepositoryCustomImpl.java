@@ -0,0 +1,68 @@
+package fuad.hamidan.repository;
+
+import fuad.hamidan.entity.Contact;
+import fuad.hamidan.model.ContactResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+
+class ContactRepositoryCustomImpl implements ContactRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public Slice<ContactResponse> findResponses(Specification<Contact> specification, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ContactResponse> query = builder.createQuery(ContactResponse.class);
+        Root<Contact> root = query.from(Contact.class);
+        query.select(builder.construct(ContactResponse.class,
+                root.get("id"),
+                root.get("firstName"),
+                root.get("lastName"),
+                root.get("email"),
+                root.get("phone")));
+
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+
+        List<ContactResponse> contacts = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+
+        boolean hasNext = contacts.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? contacts.subList(0, pageable.getPageSize()) : contacts, pageable, hasNext);
+    }
+
+    @Override
+    public void persistAll(List<Contact> contacts) {
+        for (int i = 0; i < contacts.size(); i++) {
+            entityManager.persist(contacts.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,18 @@
+package fuad.hamidan.repository;
+
+/**
+ * How {@code GET /api/contacts} filters are turned into SQL, selected by {@code app.contact.search-backend}.
+ */
+public enum ContactSearchBackend {
+
+    /**
+     * {@code LIKE '%term%'} on every column; works everywhere but scans all contacts of the user.
+     */
+    LIKE,
+
+    /**
+     * MySQL ngram {@code FULLTEXT} indexes for name and email, index prefix match for phone.
+     * Requires the indexes from {@code database.sql}.
+     */
+    FULLTEXT
+}
@@ -0,0 +1,183 @@
+package fuad.hamidan.repository;
+
+import fuad.hamidan.entity.Contact;
+import fuad.hamidan.model.ContactCursor;
+import fuad.hamidan.model.PhoneNumbers;
+import fuad.hamidan.model.SearchContactRequest;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Contact search filters for each {@link ContactSearchBackend}, always scoped to one user.
+ */
+public final class ContactSpecifications {
+
+    // innodb ngram_token_size, shorter terms produce no tokens and cannot match the index
+    private static final int NGRAM_TOKEN_SIZE = 2;
+
+    /**
+     * Stable order for keyset paging, backed by {@code idx_contacts_username_name}. Null last names sort first,
+     * which is what MySQL does for ascending order without any extra expression that would defeat the index.
+     */
+    public static final Sort KEYSET_SORT = Sort.by("lastName", "firstName", "id");
+
+    private ContactSpecifications() {
+    }
+
+    public static Specification<Contact> search(ContactSearchBackend backend, String username, SearchContactRequest request) {
+        return backend == ContactSearchBackend.FULLTEXT ? fulltext(username, request) : like(username, request);
+    }
+
+    public static Specification<Contact> like(String username, SearchContactRequest request) {
+        return (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(builder.equal(root.get("user").get("username"), username));
+            if (Objects.nonNull(request.getName())) {
+                predicates.add(builder.or(
+                        builder.like(root.get("firstName"), "%" + request.getName() + "%"),
+                        builder.like(root.get("lastName"), "%" + request.getName() + "%")
+                ));
+            }
+
+            if (Objects.nonNull(request.getEmail())) {
+                predicates.add(builder.like(root.get("email"), "%" + request.getEmail() + "%"));
+            }
+
+            if (Objects.nonNull(request.getPhone())) {
+                predicates.add(phone(root, builder, request.getPhone()));
+            }
+
+            return query.where(predicates.toArray(new Predicate[]{})).getRestriction();
+        };
+    }
+
+    public static Specification<Contact> fulltext(String username, SearchContactRequest request) {
+        return (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(builder.equal(root.get("user").get("username"), username));
+            if (Objects.nonNull(request.getName())) {
+                String name = request.getName();
+                predicates.add(isIndexable(name)
+                        ? matches(builder, builder.function("match_against2", Double.class,
+                                root.get("firstName"), root.get("lastName"), bind(builder, phrase(name))))
+                        : builder.or(
+                                builder.like(root.get("firstName"), "%" + name + "%"),
+                                builder.like(root.get("lastName"), "%" + name + "%")));
+            }
+
+            if (Objects.nonNull(request.getEmail())) {
+                String email = request.getEmail();
+                predicates.add(isIndexable(email)
+                        ? matches(builder, builder.function("match_against", Double.class,
+                                root.get("email"), bind(builder, phrase(email))))
+                        : builder.like(root.get("email"), "%" + email + "%"));
+            }
+
+            if (Objects.nonNull(request.getPhone())) {
+                predicates.add(phone(root, builder, request.getPhone()));
+            }
+
+            return query.where(predicates.toArray(new Predicate[]{})).getRestriction();
+        };
+    }
+
+    /**
+     * First name, last name, full name or email starting with {@code prefix}, for autocomplete of users whose
+     * suggest index is too large to keep in memory. Relies on the column collation to ignore case and accents.
+     */
+    public static Specification<Contact> prefix(String username, String prefix) {
+        return (root, query, builder) -> {
+            String pattern = escapeLike(prefix) + "%";
+            Expression<String> fullName = builder.concat(builder.concat(root.get("firstName"), " "), root.get("lastName"));
+            return builder.and(
+                    builder.equal(root.get("user").get("username"), username),
+                    builder.or(
+                            builder.like(root.get("firstName"), pattern, '\\'),
+                            builder.like(root.get("lastName"), pattern, '\\'),
+                            builder.like(fullName, pattern, '\\'),
+                            builder.like(root.get("email"), pattern, '\\')
+                    )
+            );
+        };
+    }
+
+    /**
+     * Contacts strictly after the cursor in {@link #KEYSET_SORT} order.
+     */
+    public static Specification<Contact> after(ContactCursor cursor) {
+        return (root, query, builder) -> {
+            Expression<String> lastName = root.get("lastName");
+            Predicate sameLastNameAfter = builder.or(
+                    builder.greaterThan(root.get("firstName"), cursor.firstName()),
+                    builder.and(
+                            builder.equal(root.get("firstName"), cursor.firstName()),
+                            builder.greaterThan(root.get("id"), cursor.id())
+                    )
+            );
+
+            if (cursor.lastName() == null) {
+                return builder.or(
+                        builder.isNotNull(lastName),
+                        builder.and(builder.isNull(lastName), sameLastNameAfter)
+                );
+            }
+
+            return builder.or(
+                    builder.greaterThan(lastName, cursor.lastName()),
+                    builder.and(builder.equal(lastName, cursor.lastName()), sameLastNameAfter)
+            );
+        };
+    }
+
+    /**
+     * Prefix match on {@code phone_normalized}, backed by {@code idx_contacts_username_phone_normalized};
+     * a complete number is just the longest prefix. A term without digits cannot match any normalized number,
+     * so it falls back to a substring match on the raw column. Rows {@code PhoneBackfillJob} has not reached yet
+     * are matched on the raw column too; both are ranges of the same index.
+     */
+    private static Predicate phone(Root<Contact> root, CriteriaBuilder builder, String phone) {
+        Predicate raw = builder.like(root.get("phone"), "%" + escapeLike(phone) + "%", '\\');
+        String normalized = PhoneNumbers.normalize(phone);
+        if (Objects.isNull(normalized)) {
+            return raw;
+        }
+        return builder.or(
+                builder.like(root.get("phoneNormalized"), bind(builder, normalized + "%")),
+                builder.and(builder.isNull(root.get("phoneNormalized")), raw)
+        );
+    }
+
+    private static Predicate matches(CriteriaBuilder builder, Expression<Double> relevance) {
+        return builder.greaterThan(relevance, 0.0);
+    }
+
+    // a bound parameter rather than an inlined literal, so the statement text stays the same for every term
+    private static Expression<String> bind(CriteriaBuilder builder, String value) {
+        return ((HibernateCriteriaBuilder) builder).value(value);
+    }
+
+    private static boolean isIndexable(String term) {
+        return term.strip().length() >= NGRAM_TOKEN_SIZE;
+    }
+
+    /**
+     * Quotes the term as a boolean-mode phrase, so the ngram parser requires its n-grams in order,
+     * which is the index equivalent of a substring match.
+     */
+    static String phrase(String term) {
+        return "\"" + term.strip().replace("\"", " ") + "\"";
+    }
+
+    static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,11 @@
+package fuad.hamidan.repository;
+
+/**
+ * Keyset position of an expired token row: its expiry and its primary key, in the order of the expiry index.
+ */
+public interface ExpiredKeyView {
+
+    String getId();
+
+    Long getExpiredAt();
+}
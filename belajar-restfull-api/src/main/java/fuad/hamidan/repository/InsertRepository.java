@@ -0,0 +1,13 @@
+package fuad.hamidan.repository;
+
+/**
+ * Repository fragment for entities with an assigned id and no {@code @Version}. For those, {@code save} cannot tell
+ * a new entity from a detached one and merges, which costs a SELECT before every INSERT.
+ */
+public interface InsertRepository<T> {
+
+    /**
+     * Persists a new entity with a plain INSERT, in its own transaction unless one is already active.
+     */
+    void insert(T entity);
+}
@@ -0,0 +1,17 @@
+package fuad.hamidan.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+class InsertRepositoryImpl<T> implements InsertRepository<T> {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void insert(T entity) {
+        entityManager.persist(entity);
+    }
+}
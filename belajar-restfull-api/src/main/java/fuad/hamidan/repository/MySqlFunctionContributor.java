@@ -0,0 +1,23 @@
+package fuad.hamidan.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers MySQL {@code MATCH ... AGAINST} so criteria queries can use the FULLTEXT indexes.
+ * Both functions return the relevance score, which is greater than zero for matching rows.
+ */
+public class MySqlFunctionContributor implements FunctionContributor {
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        var registry = functionContributions.getFunctionRegistry();
+        var doubleType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.DOUBLE);
+
+        registry.registerPattern("match_against", "match(?1) against(?2 in boolean mode)", doubleType);
+        registry.registerPattern("match_against2", "match(?1, ?2) against(?3 in boolean mode)", doubleType);
+    }
+}
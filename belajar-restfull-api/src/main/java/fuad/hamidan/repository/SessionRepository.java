@@ -0,0 +1,40 @@
+package fuad.hamidan.repository;
+
+import fuad.hamidan.entity.Session;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SessionRepository extends JpaRepository<Session, String>, InsertRepository<Session> {
+
+    @Query("select u.username as username, u.name as name, s.expiredAt as expiredAt from Session s join s.user u where s.tokenHash = :tokenHash")
+    Optional<UserPrincipalView> findPrincipal(@Param("tokenHash") String tokenHash);
+
+    @Modifying
+    @Query("delete from Session s where s.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+
+    /**
+     * Next expired sessions in {@code (expiredAt, tokenHash)} order, served by {@code idx_sessions_expired_at}.
+     */
+    @Query("select s.tokenHash as id, s.expiredAt as expiredAt from Session s where s.expiredAt < :now and " +
+            "(s.expiredAt > :afterExpiredAt or (s.expiredAt = :afterExpiredAt and s.tokenHash > :after)) " +
+            "order by s.expiredAt, s.tokenHash")
+    List<ExpiredKeyView> findExpired(@Param("now") Long now,
+                                     @Param("afterExpiredAt") Long afterExpiredAt,
+                                     @Param("after") String after,
+                                     Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Session s where s.tokenHash in :tokenHashes and s.expiredAt < :now")
+    int deleteExpired(@Param("tokenHashes") List<String> tokenHashes, @Param("now") Long now);
+}
@@ -0,0 +1,13 @@
+package fuad.hamidan.repository;
+
+/**
+ * Interface projection selecting only the columns a request principal needs.
+ */
+public interface UserPrincipalView {
+
+    String getUsername();
+
+    String getName();
+
+    Long getExpiredAt();
+}
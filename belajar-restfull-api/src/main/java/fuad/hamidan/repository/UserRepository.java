@@ -1,13 +1,57 @@
 package fuad.hamidan.repository;
 
 import fuad.hamidan.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, String> {
 
-    Optional<User> findFirstByToken(String token);
+    /**
+     * Replaces the password hash only if it is still the one that was verified.
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :newPassword where u.username = :username and u.password = :oldPassword")
+    int updatePassword(@Param("username") String username,
+                       @Param("oldPassword") String oldPassword,
+                       @Param("newPassword") String newPassword);
+
+    /**
+     * Next expired tokens in {@code (tokenExpiredAt, username)} order, which {@code idx_users_roken_expired_at}
+     * serves directly since InnoDB appends the primary key to every secondary index.
+     */
+    @Query("select u.username as id, u.tokenExpiredAt as expiredAt from User u where u.tokenExpiredAt < :now and " +
+            "(u.tokenExpiredAt > :afterExpiredAt or (u.tokenExpiredAt = :afterExpiredAt and u.username > :after)) " +
+            "order by u.tokenExpiredAt, u.username")
+    List<ExpiredKeyView> findExpiredTokenOwners(@Param("now") Long now,
+                                                @Param("afterExpiredAt") Long afterExpiredAt,
+                                                @Param("after") String after,
+                                                Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.token = null, u.tokenExpiredAt = null where u.username in :usernames and u.tokenExpiredAt < :now")
+    int clearExpiredTokens(@Param("usernames") List<String> usernames, @Param("now") Long now);
+
+    @Query("select u.contactsVersion from User u where u.username = :username")
+    Optional<Long> findContactsVersion(@Param("username") String username);
+
+    @Modifying
+    @Query("update User u set u.contactsVersion = u.contactsVersion + 1 where u.username = :username")
+    int incrementContactsVersion(@Param("username") String username);
+
+    @Query("select u.username as username, u.name as name, u.tokenExpiredAt as expiredAt from User u where u.token = :token")
+    Optional<UserPrincipalView> findPrincipalByToken(@Param("token") String token);
+
+    @Query("select u.username as username, u.name as name, u.tokenExpiredAt as expiredAt from User u where u.username = :username")
+    Optional<UserPrincipalView> findPrincipalByUsername(@Param("username") String username);
 }
@@ -1,10 +1,19 @@
 package fuad.hamidan.resolver;
 
-import fuad.hamidan.entity.User;
+import fuad.hamidan.datasource.ReadYourWrites;
+import fuad.hamidan.repository.SessionRepository;
+import fuad.hamidan.repository.UserPrincipalView;
 import fuad.hamidan.repository.UserRepository;
+import fuad.hamidan.security.TokenCache;
+import fuad.hamidan.security.TokenDenylist;
+import fuad.hamidan.security.TokenHash;
+import fuad.hamidan.security.TokenMode;
+import fuad.hamidan.security.TokenSigner;
+import fuad.hamidan.security.UserPrincipal;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.MethodParameter;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
@@ -21,13 +30,38 @@ public class UserArgumentResolver implements HandlerMethodArgumentResolver {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private TokenSigner tokenSigner;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Value("${app.auth.token-mode:opaque}")
+    private TokenMode tokenMode;
+
     @Override
     public boolean supportsParameter(MethodParameter parameter) {
-        return User.class.equals(parameter.getParameterType());
+        return UserPrincipal.class.equals(parameter.getParameterType());
     }
 
     @Override
     public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        UserPrincipal principal = resolve(webRequest);
+        // from here on, this request's read-only transactions may go to a replica
+        readYourWrites.bind(principal.username());
+        return principal;
+    }
+
+    private UserPrincipal resolve(NativeWebRequest webRequest) {
         HttpServletRequest servletRequest = webRequest.getNativeRequest(HttpServletRequest.class);
         String token = servletRequest.getHeader("X-API-TOKEN");
         log.info("TOKEN {}", token);
@@ -35,14 +69,51 @@ public class UserArgumentResolver implements HandlerMethodArgumentResolver {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized");
         }
 
-        User user = userRepository.findFirstByToken(token)
+        if (tokenMode == TokenMode.SIGNED){
+            return resolveSigned(token);
+        }
+
+        UserPrincipal cached = tokenCache.get(token).orElse(null);
+        if (cached != null){
+            return cached;
+        }
+
+        // tokens issued before sessions existed still live in users.token
+        UserPrincipalView view = sessionRepository.findPrincipal(TokenHash.of(token))
+                .or(() -> userRepository.findPrincipalByToken(token))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized"));
 
-        log.info("USER {}", user);
+        log.info("USER {}", view.getUsername());
+
+        if (view.getExpiredAt() == null || view.getExpiredAt() < System.currentTimeMillis()){
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized");
+        }
+
+        return principal(view, token, view.getExpiredAt());
+    }
+
+    private UserPrincipal resolveSigned(String token) {
+        TokenSigner.Claims claims = tokenSigner.verify(token)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized"));
 
-        if (user.getTokenExpiredAt() < System.currentTimeMillis()){
+        if (tokenDenylist.isRevoked(token)){
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized");
         }
-        return user;
+
+        UserPrincipal cached = tokenCache.get(token).orElse(null);
+        if (cached != null){
+            return cached;
+        }
+
+        UserPrincipalView view = userRepository.findPrincipalByUsername(claims.username())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized"));
+
+        return principal(view, token, claims.expiredAt());
+    }
+
+    private UserPrincipal principal(UserPrincipalView view, String token, Long expiredAt) {
+        UserPrincipal principal = new UserPrincipal(view.getUsername(), view.getName(), token, expiredAt);
+        tokenCache.put(principal);
+        return principal;
     }
 }
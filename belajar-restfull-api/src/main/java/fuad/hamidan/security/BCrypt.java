@@ -209,10 +209,17 @@ public class BCrypt {
     static final int MIN_LOG_ROUNDS = 4;
     static final int MAX_LOG_ROUNDS = 31;
 
+    // Per-thread engines, the key schedule below is scratch state reused across hashes
+    private static final ThreadLocal<BCrypt> ENGINES = ThreadLocal.withInitial(BCrypt::new);
+
     // Expanded Blowfish key
-    private int P[];
+    private final int P[] = new int[P_orig.length];
+
+    private final int S[] = new int[S_orig.length];
 
-    private int S[];
+    private final int lr[] = new int[2];
+
+    private final int cdata[] = new int[bf_crypt_ciphertext.length];
 
     /**
      * Encode a byte array using bcrypt's slightly-modified base64 encoding scheme. Note
@@ -276,15 +283,16 @@ public class BCrypt {
      * @throws IllegalArgumentException if maxolen is invalid
      */
     static byte[] decode_base64(String s, int maxolen) throws IllegalArgumentException {
-        StringBuilder rs = new StringBuilder();
         int off = 0, slen = s.length(), olen = 0;
-        byte ret[];
+        byte rs[];
         byte c1, c2, c3, c4, o;
 
         if (maxolen <= 0) {
             throw new IllegalArgumentException("Invalid maxolen");
         }
 
+        rs = new byte[maxolen];
+
         while (off < slen - 1 && olen < maxolen) {
             c1 = char64(s.charAt(off++));
             c2 = char64(s.charAt(off++));
@@ -293,7 +301,7 @@ public class BCrypt {
             }
             o = (byte) (c1 << 2);
             o |= (c2 & 0x30) >> 4;
-            rs.append((char) o);
+            rs[olen] = o;
             if (++olen >= maxolen || off >= slen) {
                 break;
             }
@@ -303,22 +311,18 @@ public class BCrypt {
             }
             o = (byte) ((c2 & 0x0f) << 4);
             o |= (c3 & 0x3c) >> 2;
-            rs.append((char) o);
+            rs[olen] = o;
             if (++olen >= maxolen || off >= slen) {
                 break;
             }
             c4 = char64(s.charAt(off++));
             o = (byte) ((c3 & 0x03) << 6);
             o |= c4;
-            rs.append((char) o);
+            rs[olen] = o;
             ++olen;
         }
 
-        ret = new byte[olen];
-        for (off = 0; off < olen; off++) {
-            ret[off] = (byte) rs.charAt(off);
-        }
-        return ret;
+        return olen == maxolen ? rs : Arrays.copyOf(rs, olen);
     }
 
     /**
@@ -350,61 +354,61 @@ public class BCrypt {
     }
 
     /**
-     * Cycically extract a word of key material
+     * Cycically extract a word of key material. The offset of the next word is always
+     * {@code (off + 4) % data.length}, so callers keep it in a local instead of passing an
+     * out-parameter.
      * @param data the string to extract the data from
-     * @param offp a "pointer" (as a one-entry array) to the current offset into data
-     * @param signp a "pointer" (as a one-entry array) to the cumulative flag for
-     * non-benign sign extension
-     * @return correct and buggy next word of material from data as int[2]
+     * @param off the current offset into data
+     * @return the next word of material from data
      */
-    private static int[] streamtowords(byte data[], int offp[], int signp[]) {
-        int i;
-        int words[] = { 0, 0 };
-        int off = offp[0];
-        int sign = signp[0];
-
-        for (i = 0; i < 4; i++) {
-            words[0] = (words[0] << 8) | (data[off] & 0xff);
-            words[1] = (words[1] << 8) | data[off]; // sign extension bug
-            if (i > 0) {
-                sign |= words[1] & 0x80;
-            }
-            off = (off + 1) % data.length;
+    private static int streamtoword(byte data[], int off) {
+        int word = 0;
+        for (int i = 0; i < 4; i++) {
+            word = (word << 8) | (data[off] & 0xff);
+            off = next(off, data.length);
         }
-
-        offp[0] = off;
-        signp[0] = sign;
-        return words;
+        return word;
     }
 
     /**
-     * Cycically extract a word of key material
+     * Cycically extract a word of key material, with sign-extension bug
      * @param data the string to extract the data from
-     * @param offp a "pointer" (as a one-entry array) to the current offset into data
+     * @param off the current offset into data
      * @return the next word of material from data
      */
-    private static int streamtoword(byte data[], int offp[]) {
-        int signp[] = { 0 };
-        return streamtowords(data, offp, signp)[0];
+    private static int streamtoword_bug(byte data[], int off) {
+        int word = 0;
+        for (int i = 0; i < 4; i++) {
+            word = (word << 8) | data[off]; // sign extension bug
+            off = next(off, data.length);
+        }
+        return word;
     }
 
-    /**
-     * Cycically extract a word of key material, with sign-extension bug
-     * @param data the string to extract the data from
-     * @param offp a "pointer" (as a one-entry array) to the current offset into data
-     * @return the next word of material from data
-     */
-    private static int streamtoword_bug(byte data[], int offp[]) {
-        int signp[] = { 0 };
-        return streamtowords(data, offp, signp)[1];
+    private static int next(int off, int length) {
+        return ++off == length ? 0 : off;
+    }
+
+    private static int skipword(int off, int length) {
+        return (off + 4) % length;
     }
 
     /**
      * Initialise the Blowfish key schedule
      */
     private void init_key() {
-        this.P = P_orig.clone();
-        this.S = S_orig.clone();
+        System.arraycopy(P_orig, 0, this.P, 0, P_orig.length);
+        System.arraycopy(S_orig, 0, this.S, 0, S_orig.length);
+    }
+
+    /**
+     * Clear the password derived key schedule once a hash is done
+     */
+    private void wipe() {
+        Arrays.fill(this.P, 0);
+        Arrays.fill(this.S, 0);
+        Arrays.fill(this.lr, 0);
+        Arrays.fill(this.cdata, 0);
     }
 
     /**
@@ -415,17 +419,20 @@ public class BCrypt {
      */
     private void key(byte key[], boolean sign_ext_bug, int safety) {
         int i;
-        int koffp[] = { 0 };
-        int lr[] = { 0, 0 };
+        int koff = 0;
+        int lr[] = this.lr;
         int plen = this.P.length, slen = this.S.length;
 
+        lr[0] = 0;
+        lr[1] = 0;
         for (i = 0; i < plen; i++) {
             if (!sign_ext_bug) {
-                this.P[i] = this.P[i] ^ streamtoword(key, koffp);
+                this.P[i] = this.P[i] ^ streamtoword(key, koff);
             }
             else {
-                this.P[i] = this.P[i] ^ streamtoword_bug(key, koffp);
+                this.P[i] = this.P[i] ^ streamtoword_bug(key, koff);
             }
+            koff = skipword(koff, key.length);
         }
 
         for (i = 0; i < plen; i += 2) {
@@ -451,20 +458,28 @@ public class BCrypt {
      */
     private void ekskey(byte data[], byte key[], boolean sign_ext_bug, int safety) {
         int i;
-        int koffp[] = { 0 }, doffp[] = { 0 };
-        int lr[] = { 0, 0 };
+        int koff = 0, doff = 0;
+        int lr[] = this.lr;
         int plen = this.P.length, slen = this.S.length;
-        int signp[] = { 0 }; // non-benign sign-extension flag
+        int sign = 0; // non-benign sign-extension flag
         int diff = 0; // zero iff correct and buggy are same
 
+        lr[0] = 0;
+        lr[1] = 0;
         for (i = 0; i < plen; i++) {
-            int words[] = streamtowords(key, koffp, signp);
-            diff |= words[0] ^ words[1];
-            this.P[i] = this.P[i] ^ words[sign_ext_bug ? 1 : 0];
+            int word = 0, word_bug = 0;
+            for (int j = 0; j < 4; j++) {
+                word = (word << 8) | (key[koff] & 0xff);
+                word_bug = (word_bug << 8) | key[koff]; // sign extension bug
+                if (j > 0) {
+                    sign |= word_bug & 0x80;
+                }
+                koff = next(koff, key.length);
+            }
+            diff |= word ^ word_bug;
+            this.P[i] = this.P[i] ^ (sign_ext_bug ? word_bug : word);
         }
 
-        int sign = signp[0];
-
         /*
          * At this point, "diff" is zero iff the correct and buggy algorithms produced
          * exactly the same result. If so and if "sign" is non-zero, which indicates that
@@ -494,16 +509,20 @@ public class BCrypt {
         this.P[0] ^= sign;
 
         for (i = 0; i < plen; i += 2) {
-            lr[0] ^= streamtoword(data, doffp);
-            lr[1] ^= streamtoword(data, doffp);
+            lr[0] ^= streamtoword(data, doff);
+            doff = skipword(doff, data.length);
+            lr[1] ^= streamtoword(data, doff);
+            doff = skipword(doff, data.length);
             encipher(lr, 0);
             this.P[i] = lr[0];
             this.P[i + 1] = lr[1];
         }
 
         for (i = 0; i < slen; i += 2) {
-            lr[0] ^= streamtoword(data, doffp);
-            lr[1] ^= streamtoword(data, doffp);
+            lr[0] ^= streamtoword(data, doff);
+            doff = skipword(doff, data.length);
+            lr[1] ^= streamtoword(data, doff);
+            doff = skipword(doff, data.length);
             encipher(lr, 0);
             this.S[i] = lr[0];
             this.S[i + 1] = lr[1];
@@ -528,7 +547,7 @@ public class BCrypt {
      */
     private byte[] crypt_raw(byte password[], byte salt[], int log_rounds, boolean sign_ext_bug, int safety,
                              boolean for_check) {
-        int cdata[] = bf_crypt_ciphertext.clone();
+        int cdata[] = this.cdata;
         int clen = cdata.length;
 
         long rounds;
@@ -552,6 +571,7 @@ public class BCrypt {
             throw new IllegalArgumentException("Bad salt length");
         }
 
+        System.arraycopy(bf_crypt_ciphertext, 0, cdata, 0, clen);
         init_key();
         ekskey(salt, password, sign_ext_bug, safety);
         for (int i = 0; i < rounds; i++) {
@@ -572,9 +592,14 @@ public class BCrypt {
             ret[j++] = (byte) ((cdata[i] >> 8) & 0xff);
             ret[j++] = (byte) (cdata[i] & 0xff);
         }
+        wipe();
         return ret;
     }
 
+    static byte[] crypt_raw(byte password[], byte salt[], int log_rounds) {
+        return ENGINES.get().crypt_raw(password, salt, log_rounds, false, 0x10000, false);
+    }
+
     private static String hashpwforcheck(byte[] passwordb, String salt) {
         return hashpw(passwordb, salt, true);
     }
@@ -609,7 +634,7 @@ public class BCrypt {
         byte saltb[], hashed[];
         char minor = (char) 0;
         int rounds, off;
-        StringBuilder rs = new StringBuilder();
+        StringBuilder rs = new StringBuilder(60);
 
         // Enforce max length for new passwords only
         if (!for_check && passwordb.length > 72) {
@@ -656,7 +681,7 @@ public class BCrypt {
             passwordb = Arrays.copyOf(passwordb, passwordb.length + 1);
         }
 
-        B = new BCrypt();
+        B = ENGINES.get();
         hashed = B.crypt_raw(passwordb, saltb, rounds, minor == 'x', minor == 'a' ? 0x10000 : 0, for_check);
 
         rs.append("$2");
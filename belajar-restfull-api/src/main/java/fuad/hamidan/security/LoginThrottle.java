@@ -0,0 +1,75 @@
+package fuad.hamidan.security;
+
+import fuad.hamidan.exception.RetryAfterException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Limits login attempts per username and per client address over a sliding window, before any
+ * database lookup or password hashing happens. Every attempt counts, rejected ones included, so a
+ * client that keeps hammering stays locked out.
+ */
+@Component
+public class LoginThrottle {
+
+    private final SlidingWindowCounter usernames;
+
+    private final SlidingWindowCounter addresses;
+
+    private final int usernameLimit;
+
+    private final int addressLimit;
+
+    private final Counter rejectedUsername;
+
+    private final Counter rejectedAddress;
+
+    public LoginThrottle(@Value("${app.auth.login-throttle.window:1m}") Duration window,
+                         @Value("${app.auth.login-throttle.username-limit:10}") int usernameLimit,
+                         @Value("${app.auth.login-throttle.address-limit:100}") int addressLimit,
+                         @Value("${app.auth.login-throttle.stripes:4096}") int stripes,
+                         MeterRegistry meterRegistry) {
+        this.usernames = new SlidingWindowCounter(stripes, window.toMillis());
+        this.addresses = new SlidingWindowCounter(stripes, window.toMillis());
+        this.usernameLimit = usernameLimit;
+        this.addressLimit = addressLimit;
+
+        this.rejectedUsername = Counter.builder("auth.login.throttled").tag("key", "username").register(meterRegistry);
+        this.rejectedAddress = Counter.builder("auth.login.throttled").tag("key", "address").register(meterRegistry);
+        Gauge.builder("auth.login.throttle.active.keys", usernames, counter -> counter.activeCells(System.currentTimeMillis()))
+                .tag("key", "username").register(meterRegistry);
+        Gauge.builder("auth.login.throttle.active.keys", addresses, counter -> counter.activeCells(System.currentTimeMillis()))
+                .tag("key", "address").register(meterRegistry);
+        Gauge.builder("auth.login.throttle.memory", this, throttle -> throttle.usernames.memoryBytes() + throttle.addresses.memoryBytes())
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    public void acquire(String username, String address) {
+        long now = System.currentTimeMillis();
+
+        long byAddress = addresses.incrementAndEstimate(Objects.toString(address, ""), now);
+        long byUsername = usernames.incrementAndEstimate(Objects.toString(username, ""), now);
+
+        if (byAddress > addressLimit) {
+            rejectedAddress.increment();
+            throw tooManyAttempts(addresses, now);
+        }
+
+        if (byUsername > usernameLimit) {
+            rejectedUsername.increment();
+            throw tooManyAttempts(usernames, now);
+        }
+    }
+
+    private RetryAfterException tooManyAttempts(SlidingWindowCounter counter, long now) {
+        return new RetryAfterException(HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts",
+                Duration.ofMillis(counter.millisUntilNextWindow(now)));
+    }
+}
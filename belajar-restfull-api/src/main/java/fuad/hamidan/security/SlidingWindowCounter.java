@@ -0,0 +1,103 @@
+package fuad.hamidan.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free approximate counter of events per key over a sliding window.
+ * <p>
+ * Keys are hashed onto {@code stripes} cells in each of {@code depth} rows, like a count-min
+ * sketch, so memory does not grow with the number of keys. A collision can only overestimate a
+ * count, and taking the minimum over the rows keeps that rare. Each cell packs the window number
+ * in its high half and the count in its low half, so a stale window resets with a single CAS. The
+ * sliding estimate weights the previous window by how much of it still overlaps the current one.
+ */
+class SlidingWindowCounter {
+
+    private static final int DEPTH = 2;
+
+    private final int stripes;
+
+    private final long windowMillis;
+
+    private final AtomicLongArray cells;
+
+    SlidingWindowCounter(int stripes, long windowMillis) {
+        this.stripes = stripes;
+        this.windowMillis = windowMillis;
+        this.cells = new AtomicLongArray(DEPTH * stripes * 2);
+    }
+
+    /**
+     * Records one event for the key and returns the estimated count in the sliding window,
+     * including this event.
+     */
+    long incrementAndEstimate(String key, long now) {
+        long window = now / windowMillis;
+        double overlap = 1.0 - (double) (now % windowMillis) / windowMillis;
+        long estimate = Long.MAX_VALUE;
+
+        for (int row = 0; row < DEPTH; row++) {
+            int base = cellBase(row, key);
+            int current = increment(base + (int) (window & 1), window);
+            int previous = count(cells.get(base + (int) ((window - 1) & 1)), window - 1);
+            estimate = Math.min(estimate, (long) Math.ceil(previous * overlap) + current);
+        }
+        return estimate;
+    }
+
+    long millisUntilNextWindow(long now) {
+        return windowMillis - now % windowMillis;
+    }
+
+    /**
+     * Number of cells in the first row that saw events in the current window, an upper bound for
+     * the number of distinct active keys up to collisions.
+     */
+    int activeCells(long now) {
+        long window = now / windowMillis;
+        int active = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (count(cells.get(stripe * 2 + (int) (window & 1)), window) > 0) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    long memoryBytes() {
+        return (long) cells.length() * Long.BYTES;
+    }
+
+    private int increment(int index, long window) {
+        while (true) {
+            long cell = cells.get(index);
+            int count = count(cell, window);
+            if (count == Integer.MAX_VALUE) {
+                return count;
+            }
+
+            long next = ((window & 0xffffffffL) << 32) | (count + 1L);
+            if (cells.compareAndSet(index, cell, next)) {
+                return count + 1;
+            }
+        }
+    }
+
+    private static int count(long cell, long window) {
+        return (int) (cell >>> 32) == (int) window ? (int) cell : 0;
+    }
+
+    private int cellBase(int row, String key) {
+        int hash = mix(key.hashCode() + row * 0x9E3779B9);
+        return (row * stripes + Math.floorMod(hash, stripes)) * 2;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
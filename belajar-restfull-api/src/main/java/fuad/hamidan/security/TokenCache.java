@@ -0,0 +1,112 @@
+package fuad.hamidan.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Bounded, in-process token to principal cache in front of the session and {@code users.token} lookups.
+ * <p>
+ * Entries never outlive the token itself: an entry expires at the earlier of the configured TTL
+ * and {@link UserPrincipal#expiredAt()}. The least recently used entry is dropped once
+ * {@code max-size} is reached. The cache is local to this node, so a logout on one node is only
+ * seen by the others after their TTL elapses.
+ */
+@Component
+public class TokenCache {
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final Map<String, Entry> entries;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public TokenCache(@Value("${app.auth.token-cache.max-size:10000}") int maxSize,
+                      @Value("${app.auth.token-cache.ttl:5m}") Duration ttl,
+                      MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > TokenCache.this.maxSize;
+            }
+        };
+
+        this.hits = Counter.builder("auth.token.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("auth.token.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("auth.token.cache.size", this, TokenCache::size).register(meterRegistry);
+    }
+
+    public Optional<UserPrincipal> get(String token) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(token);
+            if (entry != null && entry.expiresAt() <= now) {
+                entries.remove(token);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        hits.increment();
+        return Optional.of(entry.principal());
+    }
+
+    public void put(UserPrincipal principal) {
+        if (Objects.isNull(principal.token()) || Objects.isNull(principal.expiredAt()) || maxSize <= 0) {
+            return;
+        }
+
+        long expiresAt = Math.min(System.currentTimeMillis() + ttlMillis, principal.expiredAt());
+        synchronized (entries) {
+            entries.put(principal.token(), new Entry(principal, expiresAt));
+        }
+    }
+
+    public void evict(String token) {
+        if (Objects.isNull(token)) {
+            return;
+        }
+
+        synchronized (entries) {
+            entries.remove(token);
+        }
+    }
+
+    /**
+     * Drops every cached token of the user, so all of their sessions pick up a changed profile.
+     * Scans the whole cache, which is fine for a path as rare as a profile update.
+     */
+    public void evictUser(String username) {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> entry.principal().username().equals(username));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Entry(UserPrincipal principal, long expiresAt) {
+    }
+}
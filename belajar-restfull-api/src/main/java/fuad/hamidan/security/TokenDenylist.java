@@ -0,0 +1,45 @@
+package fuad.hamidan.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revoked signed tokens, each remembered only until its own expiry.
+ * <p>
+ * Expired entries are dropped lazily, at most once a minute, whenever another token is revoked.
+ */
+@Component
+public class TokenDenylist {
+
+    private static final long PURGE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastPurge = new AtomicLong();
+
+    public TokenDenylist(MeterRegistry meterRegistry) {
+        Gauge.builder("auth.token.denylist.size", revoked, Map::size).register(meterRegistry);
+    }
+
+    public void revoke(String token, long expiredAt) {
+        long now = System.currentTimeMillis();
+        if (expiredAt > now) {
+            revoked.put(token, expiredAt);
+        }
+
+        long last = lastPurge.get();
+        if (now - last >= PURGE_INTERVAL && lastPurge.compareAndSet(last, now)) {
+            revoked.values().removeIf(expiry -> expiry <= now);
+        }
+    }
+
+    public boolean isRevoked(String token) {
+        return revoked.containsKey(token);
+    }
+}
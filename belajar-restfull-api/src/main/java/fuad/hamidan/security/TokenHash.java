@@ -0,0 +1,24 @@
+package fuad.hamidan.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public final class TokenHash {
+
+    private TokenHash() {
+    }
+
+    /**
+     * Hex encoded SHA-256 of the token, used as the {@code sessions} primary key.
+     */
+    public static String of(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package fuad.hamidan.security;
+
+public enum TokenMode {
+
+    /**
+     * Random token whose SHA-256 hash is stored in {@code sessions}, checked with a database lookup.
+     * Tokens issued before sessions existed are still accepted from {@code users.token}.
+     */
+    OPAQUE,
+
+    /**
+     * HMAC signed token carrying username and expiry, checked in memory by {@link TokenSigner}.
+     */
+    SIGNED
+}
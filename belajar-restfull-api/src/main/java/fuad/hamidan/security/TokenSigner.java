@@ -0,0 +1,104 @@
+package fuad.hamidan.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues and verifies self-describing access tokens of the form
+ * {@code base64url(username).expiredAt.base64url(hmacSha256(payload))}.
+ * <p>
+ * Verification is purely in memory. Every node that should accept the same tokens must share
+ * {@code app.auth.token-secret}; when it is left empty a random per-process key is generated.
+ */
+@Slf4j
+@Component
+public class TokenSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+
+    private final ThreadLocal<Mac> macs;
+
+    public TokenSigner(@Value("${app.auth.token-secret:}") String secret,
+                       @Value("${app.auth.token-mode:opaque}") TokenMode tokenMode) {
+        byte[] keyBytes;
+        if (secret.isBlank()) {
+            if (tokenMode == TokenMode.SIGNED) {
+                log.warn("app.auth.token-secret is not set, signed tokens will not survive a restart");
+            }
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public String sign(String username, long expiredAt) {
+        String payload = ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8)) + "." + expiredAt;
+        return payload + "." + ENCODER.encodeToString(mac(payload));
+    }
+
+    /**
+     * Returns the token claims when the signature matches and the token has not expired yet.
+     */
+    public Optional<Claims> verify(String token) {
+        int last = token.lastIndexOf('.');
+        int first = token.indexOf('.');
+        if (first <= 0 || last <= first) {
+            return Optional.empty();
+        }
+
+        String payload = token.substring(0, last);
+        try {
+            byte[] signature = DECODER.decode(token.substring(last + 1));
+            if (!MessageDigest.isEqual(signature, mac(payload))) {
+                return Optional.empty();
+            }
+
+            String username = new String(DECODER.decode(token.substring(0, first)), StandardCharsets.UTF_8);
+            long expiredAt = Long.parseLong(token.substring(first + 1, last));
+            if (expiredAt < System.currentTimeMillis()) {
+                return Optional.empty();
+            }
+
+            return Optional.of(new Claims(username, expiredAt));
+        } catch (IllegalArgumentException exception) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] mac(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public record Claims(String username, long expiredAt) {
+    }
+}
@@ -0,0 +1,10 @@
+package fuad.hamidan.security;
+
+/**
+ * The authenticated caller as resolved from {@code X-API-TOKEN}.
+ * <p>
+ * A plain value, never attached to a persistence context: services that need the stored
+ * {@link fuad.hamidan.entity.User} row load it by {@link #username()} themselves.
+ */
+public record UserPrincipal(String username, String name, String token, Long expiredAt) {
+}
@@ -0,0 +1,153 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.entity.Address;
+import fuad.hamidan.model.AddressResponse;
+import fuad.hamidan.model.ContactResponse;
+import fuad.hamidan.model.CreateAddressRequest;
+import fuad.hamidan.model.UpdateAddressRequest;
+import fuad.hamidan.model.UuidV7;
+import fuad.hamidan.repository.AddressRepository;
+import fuad.hamidan.repository.AddressView;
+import fuad.hamidan.repository.ContactRepository;
+import fuad.hamidan.repository.UserRepository;
+import fuad.hamidan.security.UserPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class AddressService {
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ValidationService validationService;
+
+    @Transactional
+    public AddressResponse create(UserPrincipal principal, CreateAddressRequest request) {
+        validationService.validate(request);
+        requireContact(principal, request.getContactId());
+
+        Address address = new Address();
+        address.setId(UuidV7.next());
+        address.setContact(contactRepository.getReferenceById(request.getContactId()));
+        address.setStreet(request.getStreet());
+        address.setCity(request.getCity());
+        address.setProvince(request.getProvince());
+        address.setCountry(request.getCountry());
+        address.setPostalCode(request.getPostalCode());
+
+        addressRepository.insert(address);
+        addressesChanged(principal);
+
+        return toAddressResponse(address);
+    }
+
+    @Transactional(readOnly = true)
+    public AddressResponse get(UserPrincipal principal, String contactId, String addressId) {
+        return addressRepository.findResponse(principal.username(), contactId, addressId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address is not found"));
+    }
+
+    @Transactional
+    public AddressResponse update(UserPrincipal principal, UpdateAddressRequest request) {
+        validationService.validate(request);
+
+        int updated = addressRepository.update(principal.username(), request.getContactId(), request.getAddressId(),
+                request.getStreet(), request.getCity(), request.getProvince(), request.getCountry(), request.getPostalCode());
+        if (updated == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Address is not found");
+        }
+        addressesChanged(principal);
+
+        return AddressResponse.builder()
+                .id(request.getAddressId())
+                .street(request.getStreet())
+                .city(request.getCity())
+                .province(request.getProvince())
+                .country(request.getCountry())
+                .postalCode(request.getPostalCode())
+                .build();
+    }
+
+    @Transactional
+    public void remove(UserPrincipal principal, String contactId, String addressId) {
+        if (addressRepository.delete(principal.username(), contactId, addressId) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Address is not found");
+        }
+        addressesChanged(principal);
+    }
+
+    @Transactional(readOnly = true)
+    public List<AddressResponse> list(UserPrincipal principal, String contactId) {
+        requireContact(principal, contactId);
+        return addressRepository.findResponses(contactId);
+    }
+
+    /**
+     * Sets the addresses of every contact on a search page with one query for the whole page, however many
+     * contacts it holds. The contacts must already be scoped to the caller.
+     */
+    @Transactional(readOnly = true)
+    public void embed(List<ContactResponse> contacts) {
+        if (contacts.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<AddressResponse>> addresses = new HashMap<>();
+        for (ContactResponse contact : contacts) {
+            addresses.put(contact.getId(), new ArrayList<>());
+        }
+
+        for (AddressView view : addressRepository.findViews(addresses.keySet())) {
+            addresses.get(view.getContactId()).add(AddressResponse.builder()
+                    .id(view.getId())
+                    .street(view.getStreet())
+                    .city(view.getCity())
+                    .province(view.getProvince())
+                    .country(view.getCountry())
+                    .postalCode(view.getPostalCode())
+                    .build());
+        }
+
+        for (ContactResponse contact : contacts) {
+            contact.setAddresses(addresses.get(contact.getId()));
+        }
+    }
+
+    private void requireContact(UserPrincipal principal, String contactId) {
+        if (!contactRepository.existsByUser_UsernameAndId(principal.username(), contactId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact is not found");
+        }
+    }
+
+    // embedded addresses are part of the search representation, so they move its ETag too
+    private void addressesChanged(UserPrincipal principal) {
+        userRepository.incrementContactsVersion(principal.username());
+    }
+
+    private AddressResponse toAddressResponse(Address address) {
+        return AddressResponse.builder()
+                .id(address.getId())
+                .street(address.getStreet())
+                .city(address.getCity())
+                .province(address.getProvince())
+                .country(address.getCountry())
+                .postalCode(address.getPostalCode())
+                .build();
+    }
+}
@@ -1,11 +1,19 @@
 package fuad.hamidan.service;
 
+import fuad.hamidan.entity.Session;
 import fuad.hamidan.entity.User;
 import fuad.hamidan.model.LoginUserRequest;
 import fuad.hamidan.model.TokenResponse;
+import fuad.hamidan.repository.SessionRepository;
 import fuad.hamidan.repository.UserRepository;
-import fuad.hamidan.security.BCrypt;
+import fuad.hamidan.security.TokenCache;
+import fuad.hamidan.security.TokenDenylist;
+import fuad.hamidan.security.TokenHash;
+import fuad.hamidan.security.TokenMode;
+import fuad.hamidan.security.TokenSigner;
+import fuad.hamidan.security.UserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,10 +29,28 @@ public class AuthService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SessionRepository sessionRepository;
+
     @Autowired
     private ValidationService validationService;
 
-    @Transactional
+    @Autowired
+    private PasswordService passwordService;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private TokenSigner tokenSigner;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    @Value("${app.auth.token-mode:opaque}")
+    private TokenMode tokenMode;
+
+    // no surrounding transaction, so no connection is held while the password check waits for a worker
     public TokenResponse login(LoginUserRequest request) {
 
         validationService.validate(request);
@@ -32,13 +58,30 @@ public class AuthService {
         User user = userRepository.findById(request.getUsername())
                 .orElseThrow(()-> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Username or password worng"));
 
-        if (BCrypt.checkpw(request.getPassword(), user.getPassword())) {
-            user.setToken(UUID.randomUUID().toString());
-            user.setTokenExpiredAt(next30days());
+        if (passwordService.verify(request.getPassword(), user.getPassword())) {
+            passwordService.rehashIfNeeded(user.getUsername(), request.getPassword(), user.getPassword());
+
+            if (tokenMode == TokenMode.SIGNED) {
+                Long expiredAt = next30days();
+                return TokenResponse.builder()
+                        .token(tokenSigner.sign(user.getUsername(), expiredAt))
+                        .expiredAt(expiredAt)
+                        .build();
+            }
+
+            String token = UUID.randomUUID().toString();
+
+            Session session = new Session();
+            session.setTokenHash(TokenHash.of(token));
+            // a reference rather than the detached user, which Hibernate would SELECT again to tell it from a new one
+            session.setUser(userRepository.getReferenceById(user.getUsername()));
+            session.setExpiredAt(next30days());
+            session.setCreatedAt(System.currentTimeMillis());
+            sessionRepository.insert(session);
 
             return TokenResponse.builder()
-                    .token(user.getToken())
-                    .expiredAt(user.getTokenExpiredAt())
+                    .token(token)
+                    .expiredAt(session.getExpiredAt())
                     .build();
 
         } else {
@@ -51,9 +94,21 @@ public class AuthService {
     }
 
     @Transactional
-    public void logout(User user){
-        user.setToken(null);
-        user.setTokenExpiredAt(null);
-        userRepository.save(user);
+    public void logout(UserPrincipal principal){
+        tokenCache.evict(principal.token());
+        if (tokenMode == TokenMode.SIGNED){
+            tokenDenylist.revoke(principal.token(), principal.expiredAt());
+            return;
+        }
+
+        sessionRepository.deleteByTokenHash(TokenHash.of(principal.token()));
+
+        userRepository.findById(principal.username())
+                .filter(userDb -> principal.token().equals(userDb.getToken()))
+                .ifPresent(userDb -> {
+                    userDb.setToken(null);
+                    userDb.setTokenExpiredAt(null);
+                    userRepository.save(userDb);
+                });
     }
 }
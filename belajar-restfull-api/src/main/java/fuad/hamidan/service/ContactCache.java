@@ -0,0 +1,31 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.model.VersionedContact;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Read-through cache of single contacts keyed by (username, contact id).
+ * <p>
+ * {@link ContactService} fills it on reads and updates it only after its transaction completes. Select the
+ * implementation with {@code app.contact.cache.type}; a shared cache only has to implement this interface.
+ * <p>
+ * A reader takes {@link #generation} before it reads the row and hands it to {@link #put}; every {@link #evict}
+ * bumps it, so a row read before a concurrent write commits is not cached after that write's eviction.
+ */
+public interface ContactCache {
+
+    Optional<VersionedContact> get(String username, String contactId);
+
+    long generation(String username, String contactId);
+
+    /**
+     * Caches the contact unless it was evicted after {@code generation} was taken, or a newer version is cached.
+     */
+    void put(String username, VersionedContact contact, long generation);
+
+    void evict(String username, Collection<String> contactIds);
+
+    void clear();
+}
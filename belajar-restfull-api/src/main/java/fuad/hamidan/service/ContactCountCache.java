@@ -0,0 +1,148 @@
+package fuad.hamidan.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Total contact counts per user and search filter, so offset paging does not repeat the
+ * {@code SELECT COUNT(*)} on every page.
+ * <p>
+ * Every contact mutation must call {@link #invalidate(String)}, which drops all counts of that user once
+ * the surrounding transaction completes. Counts also expire after {@code ttl} as a bound on anything that slips through.
+ */
+@Component
+public class ContactCountCache {
+
+    private final int maxUsers;
+
+    private final int maxFiltersPerUser;
+
+    private final long ttlMillis;
+
+    private final Map<String, Counts> users;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public ContactCountCache(@Value("${app.contact.count-cache.max-users:10000}") int maxUsers,
+                             @Value("${app.contact.count-cache.max-filters-per-user:16}") int maxFiltersPerUser,
+                             @Value("${app.contact.count-cache.ttl:1m}") Duration ttl,
+                             MeterRegistry meterRegistry) {
+        this.maxUsers = maxUsers;
+        this.maxFiltersPerUser = maxFiltersPerUser;
+        this.ttlMillis = ttl.toMillis();
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Counts> eldest) {
+                return size() > ContactCountCache.this.maxUsers;
+            }
+        };
+
+        this.hits = Counter.builder("contact.count.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("contact.count.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("contact.count.cache.users", this, ContactCountCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns a supplier of the total for {@code filter}, running {@code counter} only on a miss.
+     * <p>
+     * Call it before the page query: the user's counts are captured here, so a count computed from a snapshot
+     * older than a concurrent invalidation lands in the discarded counts instead of the live ones.
+     */
+    public LongSupplier total(String username, Object filter, LongSupplier counter) {
+        if (maxUsers <= 0) {
+            return counter;
+        }
+
+        Counts counts;
+        synchronized (users) {
+            counts = users.computeIfAbsent(username, key -> new Counts(maxFiltersPerUser));
+        }
+
+        return () -> {
+            long now = System.currentTimeMillis();
+            Long cached = counts.get(filter, now);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+
+            misses.increment();
+            long total = counter.getAsLong();
+            counts.put(filter, total, now + ttlMillis);
+            return total;
+        };
+    }
+
+    public void invalidate(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(username);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                evict(username);
+            }
+        });
+    }
+
+    public void clear() {
+        synchronized (users) {
+            users.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (users) {
+            return users.size();
+        }
+    }
+
+    private void evict(String username) {
+        synchronized (users) {
+            users.remove(username);
+        }
+    }
+
+    private record Entry(long total, long expiresAt) {
+    }
+
+    private static final class Counts {
+
+        private final Map<Object, Entry> entries;
+
+        private Counts(int maxFilters) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                    return size() > maxFilters;
+                }
+            };
+        }
+
+        synchronized Long get(Object filter, long now) {
+            Entry entry = entries.get(filter);
+            if (entry == null || entry.expiresAt() <= now) {
+                return null;
+            }
+            return entry.total();
+        }
+
+        synchronized void put(Object filter, long total, long expiresAt) {
+            entries.put(filter, new Entry(total, expiresAt));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package fuad.hamidan.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Writes all contacts of a user as NDJSON, one object per line, straight from a forward-only JDBC cursor.
+ * <p>
+ * Rows are read a few at a time and written through a streaming {@link JsonGenerator}, so memory use does not
+ * depend on the number of contacts. No entities are created and the persistence context is not involved.
+ * <p>
+ * Connector/J ignores a positive fetch size unless the datasource sets {@code useCursorFetch=true}, which would
+ * also force server-side prepared statements on every other query. On MySQL the export asks for a streaming
+ * result set with a fetch size of {@link Integer#MIN_VALUE} instead: rows arrive one by one and the connection
+ * is busy until the last one is read, which is fine for this single query. Other databases get
+ * {@code fetch-size}.
+ */
+@Service
+public class ContactExportService {
+
+    private static final String SQL = "SELECT id, first_name, last_name, email, phone FROM contacts WHERE username = ?";
+
+    private static final int MYSQL_STREAMING = Integer.MIN_VALUE;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.contact.export.fetch-size:1000}")
+    private int fetchSize;
+
+    public void export(String username, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.setRootValueSeparator(null);
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SQL,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                boolean mysql = "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+                statement.setFetchSize(mysql ? MYSQL_STREAMING : fetchSize);
+                statement.setString(1, username);
+                return statement;
+            }, resultSet -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeStringField("id", resultSet.getString(1));
+                    generator.writeStringField("firstName", resultSet.getString(2));
+                    generator.writeStringField("lastName", resultSet.getString(3));
+                    generator.writeStringField("email", resultSet.getString(4));
+                    generator.writeStringField("phone", resultSet.getString(5));
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException exception) {
+                    // the client went away, stop reading rows
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package fuad.hamidan.service;
+
+import org.springframework.http.MediaType;
+
+public enum ContactImportFormat {
+
+    /**
+     * {@code text/csv} with a header row naming the {@code CreateContactRequest} fields.
+     */
+    CSV,
+
+    /**
+     * {@code application/x-ndjson}, one {@code CreateContactRequest} object per line.
+     */
+    NDJSON;
+
+    public static final String CSV_VALUE = "text/csv";
+
+    public static ContactImportFormat of(String contentType) {
+        return MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV_VALUE)) ? CSV : NDJSON;
+    }
+}
@@ -0,0 +1,94 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.model.ImportErrorResponse;
+import fuad.hamidan.model.ImportJobResponse;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of one import, updated by the worker and read by status requests.
+ * Only the first {@code maxErrors} row errors are kept, the rest are just counted.
+ */
+class ContactImportJob {
+
+    enum Status { PENDING, RUNNING, COMPLETED, FAILED }
+
+    @Getter
+    private final String id;
+
+    @Getter
+    private final String username;
+
+    private final int maxErrors;
+
+    private final List<ImportErrorResponse> errors = new ArrayList<>();
+
+    private Status status = Status.PENDING;
+
+    private int processed;
+
+    private int imported;
+
+    private int rejected;
+
+    private String message;
+
+    private long finishedAt;
+
+    ContactImportJob(String id, String username, int maxErrors) {
+        this.id = id;
+        this.username = username;
+        this.maxErrors = maxErrors;
+    }
+
+    synchronized void running() {
+        status = Status.RUNNING;
+    }
+
+    synchronized void processed() {
+        processed++;
+    }
+
+    synchronized void rejected(int row, String error) {
+        rejected++;
+        if (errors.size() < maxErrors) {
+            errors.add(ImportErrorResponse.builder().row(row).errors(error).build());
+        }
+    }
+
+    synchronized void imported(int count) {
+        imported += count;
+    }
+
+    synchronized void completed() {
+        finish(Status.COMPLETED, null);
+    }
+
+    synchronized void failed(String reason) {
+        finish(Status.FAILED, reason);
+    }
+
+    synchronized boolean finishedBefore(long time) {
+        return finishedAt != 0 && finishedAt < time;
+    }
+
+    synchronized ImportJobResponse toResponse() {
+        return ImportJobResponse.builder()
+                .id(id)
+                .status(status.name())
+                .processed(processed)
+                .imported(imported)
+                .rejected(rejected)
+                .errors(List.copyOf(errors))
+                .message(message)
+                .build();
+    }
+
+    private void finish(Status status, String message) {
+        this.status = status;
+        this.message = message;
+        this.finishedAt = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,289 @@
+package fuad.hamidan.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import fuad.hamidan.entity.Contact;
+import fuad.hamidan.entity.User;
+import fuad.hamidan.exception.RetryAfterException;
+import fuad.hamidan.model.CreateContactRequest;
+import fuad.hamidan.model.ImportJobResponse;
+import fuad.hamidan.model.UuidV7;
+import fuad.hamidan.repository.ContactRepository;
+import fuad.hamidan.repository.UserRepository;
+import fuad.hamidan.security.UserPrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports contacts from CSV or NDJSON uploads in the background.
+ * <p>
+ * The upload is copied to a temporary file as it arrives, then a worker parses it one row at a time,
+ * validates each row and inserts valid contacts in batched transactions of {@code chunk-size} rows.
+ * Neither step holds more than one chunk in memory. Jobs live in memory on this node and are forgotten
+ * {@code retention} after they finish.
+ */
+@Slf4j
+@Service
+public class ContactImportService {
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ValidationService validationService;
+
+    @Autowired
+    private ContactCountCache contactCountCache;
+
+    @Autowired
+    private ContactSuggestIndex contactSuggestIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ObjectReader csvReader;
+
+    private final ObjectReader ndjsonReader;
+
+    private final Map<String, ContactImportJob> jobs = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor executor;
+
+    private final int chunkSize;
+
+    private final int maxErrors;
+
+    private final long maxBytes;
+
+    private final Duration retention;
+
+    private final Duration retryAfter;
+
+    private final Counter importedRows;
+
+    private final Counter rejectedRows;
+
+    public ContactImportService(ObjectMapper objectMapper,
+                                @Value("${app.contact.import.pool-size:2}") int poolSize,
+                                @Value("${app.contact.import.queue-capacity:8}") int queueCapacity,
+                                @Value("${app.contact.import.chunk-size:1000}") int chunkSize,
+                                @Value("${app.contact.import.max-errors:1000}") int maxErrors,
+                                @Value("${app.contact.import.max-size:100MB}") DataSize maxSize,
+                                @Value("${app.contact.import.retention:1h}") Duration retention,
+                                @Value("${app.contact.import.retry-after:30s}") Duration retryAfter,
+                                MeterRegistry meterRegistry) {
+        this.csvReader = new CsvMapper()
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .readerFor(CreateContactRequest.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.ndjsonReader = objectMapper.readerFor(CreateContactRequest.class);
+
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "contact-import-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        this.maxBytes = maxSize.toBytes();
+        this.retention = retention;
+        this.retryAfter = retryAfter;
+
+        this.importedRows = Counter.builder("contact.import.rows").tag("result", "imported").register(meterRegistry);
+        this.rejectedRows = Counter.builder("contact.import.rows").tag("result", "rejected").register(meterRegistry);
+        Gauge.builder("contact.import.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    public ImportJobResponse start(UserPrincipal principal, ContactImportFormat format, InputStream body) throws IOException {
+        purgeFinished();
+        if (executor.getQueue().remainingCapacity() == 0) {
+            // fail before reading a possibly large upload that could not be queued anyway
+            throw busy();
+        }
+
+        Path file = spool(body);
+        ContactImportJob job = new ContactImportJob(UUID.randomUUID().toString(), principal.username(), maxErrors);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, format, file));
+        } catch (RejectedExecutionException exception) {
+            jobs.remove(job.getId());
+            deleteQuietly(file);
+            throw busy();
+        }
+
+        return job.toResponse();
+    }
+
+    public ImportJobResponse get(UserPrincipal principal, String jobId) {
+        purgeFinished();
+        ContactImportJob job = jobs.get(jobId);
+        if (job == null || !job.getUsername().equals(principal.username())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Import not found");
+        }
+
+        return job.toResponse();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ContactImportJob job, ContactImportFormat format, Path file) {
+        job.running();
+        ObjectReader reader = format == ContactImportFormat.CSV ? csvReader : ndjsonReader;
+        try (InputStream inputStream = Files.newInputStream(file);
+             MappingIterator<CreateContactRequest> rows = reader.readValues(inputStream)) {
+            List<Contact> chunk = new ArrayList<>(chunkSize);
+            int row = 0;
+            while (rows.hasNextValue()) {
+                row++;
+                job.processed();
+
+                CreateContactRequest request;
+                try {
+                    request = rows.nextValue();
+                } catch (JsonMappingException exception) {
+                    // the row was read but does not fit CreateContactRequest; syntax errors still end the job
+                    reject(job, row, exception.getOriginalMessage());
+                    continue;
+                }
+
+                Set<ConstraintViolation<Object>> violations = validationService.violations(request);
+                if (!violations.isEmpty()) {
+                    reject(job, row, new ConstraintViolationException(violations).getMessage());
+                    continue;
+                }
+
+                chunk.add(toContact(request));
+                if (chunk.size() == chunkSize) {
+                    commit(job, chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+
+            commit(job, chunk);
+            job.completed();
+        } catch (Exception exception) {
+            log.warn("Import {} failed", job.getId(), exception);
+            job.failed(exception.getMessage());
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    private void commit(ContactImportJob job, List<Contact> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = userRepository.getReferenceById(job.getUsername());
+            chunk.forEach(contact -> contact.setUser(user));
+            // before the inserts, so the user row is locked exclusively before their foreign key checks share it
+            userRepository.incrementContactsVersion(job.getUsername());
+            contactRepository.persistAll(chunk);
+        });
+        job.imported(chunk.size());
+        importedRows.increment(chunk.size());
+        contactCountCache.invalidate(job.getUsername());
+        contactSuggestIndex.invalidate(job.getUsername());
+    }
+
+    private void reject(ContactImportJob job, int row, String error) {
+        job.rejected(row, error);
+        rejectedRows.increment();
+    }
+
+    private Contact toContact(CreateContactRequest request) {
+        Contact contact = new Contact();
+        contact.setId(UuidV7.next());
+        contact.setFirstName(request.getFirstName());
+        contact.setLastName(request.getLastName());
+        contact.setEmail(request.getEmail());
+        contact.setPhone(request.getPhone());
+        return contact;
+    }
+
+    private Path spool(InputStream body) throws IOException {
+        Path file = Files.createTempFile("contact-import-", ".tmp");
+        try (InputStream inputStream = body; OutputStream outputStream = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Import is larger than " + maxBytes + " bytes");
+                }
+                outputStream.write(buffer, 0, read);
+            }
+            return file;
+        } catch (IOException | RuntimeException exception) {
+            deleteQuietly(file);
+            throw exception;
+        }
+    }
+
+    private void purgeFinished() {
+        long before = System.currentTimeMillis() - retention.toMillis();
+        jobs.values().removeIf(job -> job.finishedBefore(before));
+    }
+
+    private RetryAfterException busy() {
+        return new RetryAfterException(HttpStatus.SERVICE_UNAVAILABLE, "Too many imports running, try again later", retryAfter);
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException exception) {
+            log.warn("Could not delete {}", file, exception);
+        }
+    }
+}
@@ -2,134 +2,391 @@ package fuad.hamidan.service;
 
 import fuad.hamidan.entity.Contact;
 import fuad.hamidan.entity.User;
+import fuad.hamidan.model.BulkContactResponse;
+import fuad.hamidan.model.BulkDeleteContactRequest;
+import fuad.hamidan.model.BulkUpdateContactRequest;
+import fuad.hamidan.model.BulkWriteResponse;
+import fuad.hamidan.model.ContactCursor;
 import fuad.hamidan.model.ContactResponse;
 import fuad.hamidan.model.CreateContactRequest;
+import fuad.hamidan.model.PhoneNumbers;
 import fuad.hamidan.model.SearchContactRequest;
 import fuad.hamidan.model.UpdateContactRequest;
+import fuad.hamidan.model.UuidV7;
+import fuad.hamidan.model.VersionedContact;
 import fuad.hamidan.repository.ContactRepository;
-import jakarta.persistence.criteria.Predicate;
+import fuad.hamidan.repository.ContactSearchBackend;
+import fuad.hamidan.repository.ContactSpecifications;
+import fuad.hamidan.repository.UserRepository;
+import fuad.hamidan.security.UserPrincipal;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class ContactService {
 
+    private static final Sort SUGGEST_SORT = Sort.by("firstName", "lastName", "id");
+
     @Autowired
     private ContactRepository contactRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
     @Autowired
     private ValidationService validationService;
 
+    @Autowired
+    private ContactCountCache contactCountCache;
+
+    @Autowired
+    private ContactCache contactCache;
+
+    @Autowired
+    private ContactSuggestIndex contactSuggestIndex;
+
+    @Value("${app.contact.bulk.max-items:5000}")
+    private int bulkMaxItems;
+
+    @Value("${app.contact.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    @Value("${app.contact.suggest.max-limit:50}")
+    private int suggestMaxLimit;
+
+    @Value("${app.contact.search-backend:like}")
+    private ContactSearchBackend searchBackend;
+
     @Transactional
-    public ContactResponse createContact(User user, CreateContactRequest request) {
+    public ContactResponse createContact(UserPrincipal principal, CreateContactRequest request) {
         validationService.validate(request);
 
         Contact contact = new Contact();
-        contact.setId(UUID.randomUUID().toString());
+        contact.setId(UuidV7.next());
         contact.setFirstName(request.getFirstName());
         contact.setLastName(request.getLastName());
         contact.setEmail(request.getEmail());
         contact.setPhone(request.getPhone());
-        contact.setUser(user);
+        contact.setUser(userRepository.getReferenceById(principal.username()));
 
+        contactsChanged(principal.username());
         contactRepository.save(contact);
 
-        return ContactResponse.builder()
-                .id(contact.getId())
-                .firstName(contact.getFirstName())
-                .lastName(contact.getLastName())
-                .email(contact.getEmail())
-                .phone(contact.getPhone())
-                .build();
+        ContactResponse response = toContactResponse(contact);
+        VersionedContact versioned = new VersionedContact(response, contact.getVersion());
+        afterCompletion(committed -> {
+            if (committed) {
+                contactCache.put(principal.username(), versioned,
+                        contactCache.generation(principal.username(), response.getId()));
+                contactSuggestIndex.put(principal.username(), response);
+            }
+        });
+        return response;
     }
 
-    @Transactional(readOnly = true)
-    public ContactResponse get(User user, String contactId) {
-        Contact contact = contactRepository.findFirstByUserAndId(user, contactId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    /**
+     * Creates every valid item in one transaction and reports each item by its index in the request,
+     * with the new id or the validation errors. Invalid items do not stop the others.
+     */
+    @Transactional
+    public List<BulkContactResponse> createContacts(UserPrincipal principal, List<CreateContactRequest> requests) {
+        if (requests.size() > bulkMaxItems) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + bulkMaxItems + " contacts per request");
+        }
 
-        return ContactResponse.builder()
-                .id(contact.getId())
-                .firstName(contact.getFirstName())
-                .lastName(contact.getLastName())
-                .email(contact.getEmail())
-                .phone(contact.getPhone())
-                .build();
+        User user = userRepository.getReferenceById(principal.username());
+        List<BulkContactResponse> responses = new ArrayList<>(requests.size());
+        List<Contact> contacts = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CreateContactRequest request = requests.get(i);
+            if (Objects.isNull(request)) {
+                responses.add(BulkContactResponse.builder().index(i).errors("Contact must not be null").build());
+                continue;
+            }
+
+            Set<ConstraintViolation<Object>> violations = validationService.violations(request);
+            if (!violations.isEmpty()) {
+                responses.add(BulkContactResponse.builder()
+                        .index(i)
+                        .errors(new ConstraintViolationException(violations).getMessage())
+                        .build());
+                continue;
+            }
 
+            Contact contact = new Contact();
+            contact.setId(UuidV7.next());
+            contact.setFirstName(request.getFirstName());
+            contact.setLastName(request.getLastName());
+            contact.setEmail(request.getEmail());
+            contact.setPhone(request.getPhone());
+            contact.setUser(user);
+            contacts.add(contact);
+            responses.add(BulkContactResponse.builder().index(i).id(contact.getId()).build());
+        }
+
+        if (!contacts.isEmpty()) {
+            contactsChanged(principal.username());
+            contactRepository.persistAll(contacts);
+            contactSuggestIndex.invalidate(principal.username());
+        }
+
+        return responses;
     }
 
+    /**
+     * Applies the same changes to every listed contact of the user with one UPDATE per chunk of ids.
+     * Ids that do not exist or belong to someone else are counted as requested but not affected.
+     */
     @Transactional
-    public ContactResponse update(User user, UpdateContactRequest request, String contactId) {
+    public BulkWriteResponse updateContacts(UserPrincipal principal, BulkUpdateContactRequest request) {
         validationService.validate(request);
+        if (Objects.isNull(request.getFirstName()) && Objects.isNull(request.getLastName())
+                && Objects.isNull(request.getEmail()) && Objects.isNull(request.getPhone())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nothing to update");
+        }
 
-        Contact contact = contactRepository.findFirstByUserAndId(user, contactId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found"));
-        contact.setFirstName(request.getFirstName());
-        contact.setLastName(request.getLastName());
-        contact.setEmail(request.getEmail());
-        contact.setPhone(request.getPhone());
-        contactRepository.save(contact);
+        List<String> ids = distinctIds(request.getIds());
+        int affected = 0;
+        for (List<String> chunk : chunks(ids)) {
+            affected += contactRepository.updateAll(principal.username(), chunk,
+                    request.getFirstName(), request.getLastName(), request.getEmail(), request.getPhone(),
+                    PhoneNumbers.column(request.getPhone()));
+        }
 
-        return ContactResponse.builder()
-                .id(contact.getId())
-                .firstName(contact.getFirstName())
-                .lastName(contact.getLastName())
-                .email(contact.getEmail())
-                .phone(contact.getPhone())
-                .build();
+        contactsChanged(principal.username(), ids);
+        contactSuggestIndex.invalidate(principal.username());
+        return BulkWriteResponse.builder().requested(ids.size()).affected(affected).build();
     }
 
+    /**
+     * Deletes the listed contacts of the user with one DELETE per chunk of ids; their addresses go with them
+     * through {@code ON DELETE CASCADE}.
+     */
     @Transactional
-    public void delete(User user, String idContact) {
-        Contact contact = contactRepository.findFirstByUserAndId(user, idContact).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found"));
-        contactRepository.delete(contact);
+    public BulkWriteResponse deleteContacts(UserPrincipal principal, BulkDeleteContactRequest request) {
+        validationService.validate(request);
+
+        List<String> ids = distinctIds(request.getIds());
+        int affected = 0;
+        for (List<String> chunk : chunks(ids)) {
+            affected += contactRepository.deleteAll(principal.username(), chunk);
+        }
+
+        contactsChanged(principal.username(), ids);
+        contactSuggestIndex.invalidate(principal.username());
+        return BulkWriteResponse.builder().requested(ids.size()).affected(affected).build();
+    }
+
+    /**
+     * ETag of one contact, from its {@code @Version}.
+     */
+    @Transactional(readOnly = true)
+    public String etag(UserPrincipal principal, String contactId) {
+        Long version = contactCache.get(principal.username(), contactId)
+                .map(VersionedContact::version)
+                .or(() -> contactRepository.findVersion(principal.username(), contactId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return "\"" + version + "\"";
     }
 
+    /**
+     * ETag of every search over the user's contacts, from {@code users.contacts_version}. Search URLs differ by
+     * their query string, so the collection version alone identifies a representation.
+     */
     @Transactional(readOnly = true)
-    public Page<ContactResponse> search(User user, SearchContactRequest request) {
-        Specification<Contact> specification = (root, query, builder) -> {
-            List<Predicate> predicates = new ArrayList<>();
-            predicates.add(builder.equal(root.get("user"), user));
-            if (Objects.nonNull(request.getName())) {
-                predicates.add(builder.or(
-                        builder.like(root.get("firstName"), "%" + request.getName() + "%"),
-                        builder.like(root.get("lastName"), "%" + request.getName() + "%")
-                ));
+    public String searchEtag(UserPrincipal principal) {
+        Long version = userRepository.findContactsVersion(principal.username()).orElse(0L);
+        return "\"c" + version + "\"";
+    }
+
+    /**
+     * Bumps {@code users.contacts_version}. Inserts call this before they write: the contacts foreign key takes a
+     * shared lock on the user row, and upgrading it to the exclusive lock of this UPDATE afterwards lets two
+     * concurrent writers of the same user deadlock. Taking the exclusive lock first makes them queue instead.
+     */
+    private void contactsChanged(String username) {
+        userRepository.incrementContactsVersion(username);
+        contactCountCache.invalidate(username);
+    }
+
+    /**
+     * Also drops the changed contacts from {@link ContactCache}: right away, so this node stops serving them,
+     * and again once the transaction completes, so a concurrent read of the old row cannot linger.
+     */
+    private void contactsChanged(String username, Collection<String> contactIds) {
+        contactsChanged(username);
+        contactCache.evict(username, contactIds);
+        afterCompletion(committed -> contactCache.evict(username, contactIds));
+    }
+
+    private void afterCompletion(Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
             }
+        });
+    }
+
+    private List<String> distinctIds(List<String> ids) {
+        List<String> distinct = ids.stream().distinct().toList();
+        if (distinct.size() > bulkMaxItems) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + bulkMaxItems + " contacts per request");
+        }
+        return distinct;
+    }
+
+    private List<List<String>> chunks(List<String> ids) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += bulkChunkSize) {
+            chunks.add(ids.subList(from, Math.min(from + bulkChunkSize, ids.size())));
+        }
+        return chunks;
+    }
+
+    @Transactional(readOnly = true)
+    public ContactResponse get(UserPrincipal principal, String contactId) {
+        VersionedContact cached = contactCache.get(principal.username(), contactId).orElse(null);
+        if (cached != null) {
+            return cached.contact();
+        }
+
+        // taken before the read: an update committing in between evicts and bumps it, so the old row is not cached
+        long generation = contactCache.generation(principal.username(), contactId);
+        VersionedContact contact = contactRepository.findVersioned(principal.username(), contactId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        contactCache.put(principal.username(), contact, generation);
+        return contact.contact();
+    }
 
-            if (Objects.nonNull(request.getEmail())) {
-                predicates.add(builder.like(root.get("email"), "%" + request.getEmail() + "%"));
+    @Transactional
+    public ContactResponse update(UserPrincipal principal, UpdateContactRequest request, String contactId) {
+        validationService.validate(request);
+
+        int updated = contactRepository.update(principal.username(), contactId,
+                request.getFirstName(), request.getLastName(), request.getEmail(), request.getPhone(),
+                PhoneNumbers.column(request.getPhone()));
+        if (updated == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found");
+        }
+        contactsChanged(principal.username(), List.of(contactId));
+
+        ContactResponse response = ContactResponse.builder()
+                .id(contactId)
+                .firstName(request.getFirstName())
+                .lastName(request.getLastName())
+                .email(request.getEmail())
+                .phone(request.getPhone())
+                .build();
+        afterCompletion(committed -> {
+            if (committed) {
+                contactSuggestIndex.put(principal.username(), response);
             }
+        });
+        return response;
+    }
 
-            if (Objects.nonNull(request.getPhone())) {
-                predicates.add(builder.like(root.get("phone"), "%" + request.getPhone() + "%"));
+    @Transactional
+    public void delete(UserPrincipal principal, String idContact) {
+        if (contactRepository.delete(principal.username(), idContact) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found");
+        }
+        contactsChanged(principal.username(), List.of(idContact));
+        afterCompletion(committed -> {
+            if (committed) {
+                contactSuggestIndex.remove(principal.username(), List.of(idContact));
             }
+        });
+    }
+
+    /**
+     * Autocomplete over names and emails from {@link ContactSuggestIndex}. Deliberately not transactional: only the
+     * first lookup of a user loads from the database, every later keystroke is answered from memory.
+     */
+    public List<ContactResponse> suggest(UserPrincipal principal, String query, int limit) {
+        if (limit < 1 || limit > suggestMaxLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + suggestMaxLimit);
+        }
 
-            return query.where(predicates.toArray(new Predicate[]{})).getRestriction();
-        };
+        return contactSuggestIndex.suggest(principal.username(), query, limit,
+                max -> contactRepository.findAllResponses(principal.username(), Limit.of(max)),
+                (prefix, max) -> contactRepository.findResponses(ContactSpecifications.prefix(principal.username(), prefix),
+                        PageRequest.of(0, max, SUGGEST_SORT)).getContent());
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ContactResponse> search(UserPrincipal principal, SearchContactRequest request) {
+        Specification<Contact> specification = ContactSpecifications.search(searchBackend, principal.username(), request);
+        LongSupplier total = contactCountCache.total(principal.username(),
+                new SearchFilter(searchBackend, request.getName(), request.getEmail(), request.getPhone()),
+                () -> contactRepository.count(specification));
 
         Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
-        Page<Contact> contacts = contactRepository.findAll(specification, pageable);
-        List<ContactResponse> contactResponses = contacts.getContent().stream()
-                .map(this::toContactResponse)
-                .toList();
+        List<ContactResponse> contactResponses = contactRepository.findResponses(specification, pageable).getContent();
         log.info("DATA : {}", contactResponses);
-        return new PageImpl<>(contactResponses, pageable, contacts.getTotalElements());
+        return PageableExecutionUtils.getPage(contactResponses, pageable, total);
+    }
+
+    /**
+     * Offset paging without the total: one query for {@code size + 1} rows tells whether another page exists.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ContactResponse> searchSlice(UserPrincipal principal, SearchContactRequest request) {
+        Specification<Contact> specification = ContactSpecifications.search(searchBackend, principal.username(), request);
+
+        Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
+        return contactRepository.findResponses(specification, pageable);
+    }
+
+    /**
+     * Keyset paging: the page after {@link SearchContactRequest#getCursor()} in
+     * {@link ContactSpecifications#KEYSET_SORT} order, or the first page when the cursor is empty.
+     * Costs the same at any depth, unlike {@link #search}, and never counts.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ContactResponse> searchAfter(UserPrincipal principal, SearchContactRequest request) {
+        Specification<Contact> specification = ContactSpecifications.search(searchBackend, principal.username(), request);
+        if (Objects.nonNull(request.getCursor()) && !request.getCursor().isEmpty()) {
+            specification = specification.and(ContactSpecifications.after(ContactCursor.decode(request.getCursor())));
+        }
+
+        return contactRepository.findResponses(specification,
+                PageRequest.of(0, request.getSize(), ContactSpecifications.KEYSET_SORT));
+    }
+
+    private record SearchFilter(ContactSearchBackend backend, String name, String email, String phone) {
     }
 
     private ContactResponse toContactResponse(Contact contact) {
@@ -0,0 +1,440 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.model.ContactResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * Per-user prefix index over normalized first names, last names, full names and emails, for autocomplete.
+ * <p>
+ * An index is a sorted array of terms loaded from the database on the user's first lookup; later lookups are a
+ * binary search in memory. Single-contact writes are merged in with {@link #put} and {@link #remove} once they
+ * commit, bulk writes drop the index with {@link #invalidate}. Indexes are evicted least recently used once their
+ * estimated size exceeds {@code max-memory}. A user whose index alone would exceed it is remembered instead, and
+ * their lookups go to the database prefix query. A load reads at most one contact more than could ever fit, and only
+ * one lookup per user loads at a time; concurrent first lookups wait for its result.
+ */
+@Component
+public class ContactSuggestIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private static final int STRIPES = 64;
+
+    private final long maxBytes;
+
+    // every contact costs at least its overhead, so a user with more can never fit
+    private final int maxContacts;
+
+    private final Map<String, Index> indexes;
+
+    private final Map<String, CompletableFuture<Index>> loading = new ConcurrentHashMap<>();
+
+    // bumped by every write, so a load that raced with one is not installed
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    private long bytes;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter fallbacks;
+
+    public ContactSuggestIndex(@Value("${app.contact.suggest.max-memory:32MB}") DataSize maxMemory,
+                               MeterRegistry meterRegistry) {
+        this.maxBytes = maxMemory.toBytes();
+        this.maxContacts = (int) Math.min(maxBytes / Index.CONTACT_OVERHEAD, Integer.MAX_VALUE - 1);
+        this.indexes = new LinkedHashMap<>(16, 0.75f, true);
+
+        this.hits = Counter.builder("contact.suggest.index.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("contact.suggest.index.requests").tag("result", "miss").register(meterRegistry);
+        this.fallbacks = Counter.builder("contact.suggest.index.requests").tag("result", "fallback").register(meterRegistry);
+        Gauge.builder("contact.suggest.index.users", this, ContactSuggestIndex::size).register(meterRegistry);
+        Gauge.builder("contact.suggest.index.memory", this, ContactSuggestIndex::memory).baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * Returns at most {@code limit} contacts with a name or email starting with {@code query}, loading the
+     * user's index with {@code loader}, given the most contacts to read, when it is not in memory. Users whose
+     * index does not fit are answered by {@code fallback}, given the normalized prefix and the limit.
+     */
+    public List<ContactResponse> suggest(String username, String query, int limit,
+                                         IntFunction<? extends Collection<ContactResponse>> loader,
+                                         BiFunction<String, Integer, List<ContactResponse>> fallback) {
+        String prefix = normalize(query);
+        if (Objects.isNull(prefix) || prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Index index;
+        synchronized (indexes) {
+            index = indexes.get(username);
+        }
+
+        if (index == null) {
+            misses.increment();
+            index = load(username, loader);
+        } else if (index != Index.TOO_LARGE) {
+            hits.increment();
+        }
+
+        if (index == Index.TOO_LARGE) {
+            fallbacks.increment();
+            return fallback.apply(prefix, limit);
+        }
+        return index.lookup(prefix, limit);
+    }
+
+    public void put(String username, ContactResponse contact) {
+        change(username, index -> index.with(contact));
+    }
+
+    public void remove(String username, Collection<String> contactIds) {
+        Set<String> removed = Set.copyOf(contactIds);
+        change(username, index -> index.without(removed));
+    }
+
+    /**
+     * Drops the user's index once the surrounding transaction completes; the next lookup reloads it.
+     */
+    public void invalidate(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(username);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                evict(username);
+            }
+        });
+    }
+
+    public void clear() {
+        synchronized (indexes) {
+            indexes.clear();
+            bytes = 0;
+        }
+    }
+
+    public int size() {
+        synchronized (indexes) {
+            return indexes.size();
+        }
+    }
+
+    public long memory() {
+        synchronized (indexes) {
+            return bytes;
+        }
+    }
+
+    static String normalize(String value) {
+        if (Objects.isNull(value)) {
+            return null;
+        }
+
+        String stripped = MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private Index load(String username, IntFunction<? extends Collection<ContactResponse>> loader) {
+        CompletableFuture<Index> load = new CompletableFuture<>();
+        CompletableFuture<Index> running = loading.putIfAbsent(username, load);
+        if (running != null) {
+            return running.join();
+        }
+
+        try {
+            long generation = generations.get(stripe(username));
+            Collection<ContactResponse> contacts = loader.apply(maxContacts + 1);
+            Index index = contacts.size() > maxContacts ? Index.TOO_LARGE : Index.of(contacts);
+            if (index.bytes > maxBytes) {
+                index = Index.TOO_LARGE;
+            }
+            synchronized (indexes) {
+                if (generations.get(stripe(username)) == generation) {
+                    install(username, index);
+                }
+            }
+            load.complete(index);
+            return index;
+        } catch (RuntimeException exception) {
+            load.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            loading.remove(username, load);
+        }
+    }
+
+    /**
+     * Builds the changed index outside the lock, so lookups of other users never wait for one user's write. When
+     * another write to the same stripe got in between, neither result can be trusted: the index is dropped and the
+     * next lookup reloads it.
+     */
+    private void change(String username, UnaryOperator<Index> change) {
+        int stripe = stripe(username);
+        long generation;
+        Index current;
+        synchronized (indexes) {
+            generation = generations.incrementAndGet(stripe);
+            current = indexes.get(username);
+        }
+        if (current == null || current == Index.TOO_LARGE) {
+            return;
+        }
+
+        Index changed = change.apply(current);
+        synchronized (indexes) {
+            if (generations.get(stripe) == generation) {
+                install(username, changed);
+            } else {
+                drop(username);
+            }
+        }
+    }
+
+    private void evict(String username) {
+        synchronized (indexes) {
+            drop(username);
+        }
+    }
+
+    // caller holds the indexes lock
+    private void drop(String username) {
+        generations.incrementAndGet(stripe(username));
+        Index removed = indexes.remove(username);
+        if (removed != null) {
+            bytes -= removed.bytes;
+        }
+    }
+
+    // caller holds the indexes lock
+    private void install(String username, Index index) {
+        Index previous = indexes.remove(username);
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+
+        Index installed = index.bytes > maxBytes ? Index.TOO_LARGE : index;
+        indexes.put(username, installed);
+        bytes += installed.bytes;
+        Iterator<Index> eldest = indexes.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+
+    private static int stripe(String username) {
+        return Math.floorMod(username.hashCode(), STRIPES);
+    }
+
+    private static final class Index {
+
+        // object headers, array slots and the response fields
+        private static final long CONTACT_OVERHEAD = 160;
+
+        private static final long TERM_OVERHEAD = 64;
+
+        // remembers a user whose index would not fit in max-memory, so their lookups go to the database
+        static final Index TOO_LARGE = new Index(new ContactResponse[0], new String[0], new int[0], TERM_OVERHEAD);
+
+        private final ContactResponse[] contacts;
+
+        private final String[] terms;
+
+        private final int[] owners;
+
+        private final long bytes;
+
+        private Index(ContactResponse[] contacts, String[] terms, int[] owners, long bytes) {
+            this.contacts = contacts;
+            this.terms = terms;
+            this.owners = owners;
+            this.bytes = bytes;
+        }
+
+        static Index of(Collection<ContactResponse> source) {
+            ContactResponse[] contacts = source.toArray(ContactResponse[]::new);
+            List<Term> entries = new ArrayList<>(contacts.length * 3);
+            long bytes = 0;
+            for (int i = 0; i < contacts.length; i++) {
+                List<String> terms = terms(contacts[i]);
+                bytes += bytes(contacts[i], terms);
+                for (String term : terms) {
+                    entries.add(new Term(term, i));
+                }
+            }
+
+            entries.sort(Comparator.comparing(Term::term));
+            String[] terms = new String[entries.size()];
+            int[] owners = new int[entries.size()];
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = entries.get(i).term();
+                owners[i] = entries.get(i).owner();
+            }
+            return new Index(contacts, terms, owners, bytes);
+        }
+
+        /**
+         * Adds or replaces one contact in a single pass: its old terms are skipped and its few new ones are merged
+         * into the already sorted arrays.
+         */
+        Index with(ContactResponse contact) {
+            int owner = 0;
+            while (owner < this.contacts.length && !this.contacts[owner].getId().equals(contact.getId())) {
+                owner++;
+            }
+
+            long bytes = this.bytes;
+            ContactResponse[] contacts = Arrays.copyOf(this.contacts, Math.max(this.contacts.length, owner + 1));
+            if (owner < this.contacts.length) {
+                bytes -= bytes(contacts[owner], terms(contacts[owner]));
+            }
+            contacts[owner] = contact;
+
+            List<String> added = terms(contact);
+            bytes += bytes(contact, added);
+            String[] sorted = added.toArray(String[]::new);
+            Arrays.sort(sorted);
+
+            int kept = 0;
+            for (int existing : this.owners) {
+                if (existing != owner) {
+                    kept++;
+                }
+            }
+
+            String[] terms = new String[kept + sorted.length];
+            int[] owners = new int[terms.length];
+            int from = 0;
+            int next = 0;
+            for (int to = 0; to < terms.length; to++) {
+                while (from < this.terms.length && this.owners[from] == owner) {
+                    from++;
+                }
+                if (next == sorted.length || (from < this.terms.length && this.terms[from].compareTo(sorted[next]) <= 0)) {
+                    terms[to] = this.terms[from];
+                    owners[to] = this.owners[from++];
+                } else {
+                    terms[to] = sorted[next++];
+                    owners[to] = owner;
+                }
+            }
+            return new Index(contacts, terms, owners, bytes);
+        }
+
+        /**
+         * Removes contacts in a single pass, renumbering the owners of the remaining terms.
+         */
+        Index without(Set<String> contactIds) {
+            int[] renumbered = new int[this.contacts.length];
+            List<ContactResponse> contacts = new ArrayList<>(this.contacts.length);
+            long bytes = this.bytes;
+            for (int i = 0; i < this.contacts.length; i++) {
+                ContactResponse contact = this.contacts[i];
+                if (contactIds.contains(contact.getId())) {
+                    renumbered[i] = -1;
+                    bytes -= bytes(contact, terms(contact));
+                } else {
+                    renumbered[i] = contacts.size();
+                    contacts.add(contact);
+                }
+            }
+            if (contacts.size() == this.contacts.length) {
+                return this;
+            }
+
+            List<Term> entries = new ArrayList<>(this.terms.length);
+            for (int i = 0; i < this.terms.length; i++) {
+                if (renumbered[this.owners[i]] >= 0) {
+                    entries.add(new Term(this.terms[i], renumbered[this.owners[i]]));
+                }
+            }
+
+            String[] terms = new String[entries.size()];
+            int[] owners = new int[entries.size()];
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = entries.get(i).term();
+                owners[i] = entries.get(i).owner();
+            }
+            return new Index(contacts.toArray(ContactResponse[]::new), terms, owners, bytes);
+        }
+
+        List<ContactResponse> lookup(String prefix, int limit) {
+            int low = 0;
+            int high = terms.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (terms[middle].compareTo(prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            Set<Integer> matches = new LinkedHashSet<>();
+            for (int i = low; i < terms.length && matches.size() < limit && terms[i].startsWith(prefix); i++) {
+                matches.add(owners[i]);
+            }
+            return matches.stream().map(owner -> contacts[owner]).toList();
+        }
+
+        private static List<String> terms(ContactResponse contact) {
+            Set<String> terms = new LinkedHashSet<>();
+            terms.add(normalize(contact.getFirstName()));
+            terms.add(normalize(contact.getLastName()));
+            terms.add(normalize(Objects.toString(contact.getFirstName(), "") + " " + Objects.toString(contact.getLastName(), "")));
+            terms.add(normalize(contact.getEmail()));
+            return terms.stream().filter(term -> Objects.nonNull(term) && !term.isEmpty()).toList();
+        }
+
+        private static long bytes(ContactResponse contact, List<String> terms) {
+            long bytes = CONTACT_OVERHEAD + 2L * (length(contact.getId()) + length(contact.getFirstName())
+                    + length(contact.getLastName()) + length(contact.getEmail()) + length(contact.getPhone()));
+            for (String term : terms) {
+                bytes += TERM_OVERHEAD + 2L * term.length();
+            }
+            return bytes;
+        }
+
+        private static int length(String value) {
+            return Objects.isNull(value) ? 0 : value.length();
+        }
+    }
+
+    private record Term(String term, int owner) {
+    }
+}
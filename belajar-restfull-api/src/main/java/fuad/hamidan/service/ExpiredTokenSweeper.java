@@ -0,0 +1,108 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.repository.ExpiredKeyView;
+import fuad.hamidan.repository.SessionRepository;
+import fuad.hamidan.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Clears expired tokens from {@code users} and deletes expired {@code sessions} rows.
+ * <p>
+ * Each table is walked along its expiry index in {@code (expiry, primary key)} order, in batches of
+ * {@code batch-size}: one indexed select for the next keys after the last one seen, then one statement
+ * for the whole batch in its own short transaction. The sweeper pauses between batches, so it never
+ * holds locks for long.
+ */
+@Slf4j
+@Service
+public class ExpiredTokenSweeper {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    private final int batchSize;
+
+    private final Duration pause;
+
+    private final Counter usersCleared;
+
+    private final Counter sessionsCleared;
+
+    private final Timer duration;
+
+    public ExpiredTokenSweeper(@Value("${app.auth.token-sweeper.batch-size:500}") int batchSize,
+                               @Value("${app.auth.token-sweeper.pause:100ms}") Duration pause,
+                               MeterRegistry meterRegistry) {
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.usersCleared = Counter.builder("auth.token.sweeper.cleared").tag("table", "users").register(meterRegistry);
+        this.sessionsCleared = Counter.builder("auth.token.sweeper.cleared").tag("table", "sessions").register(meterRegistry);
+        this.duration = Timer.builder("auth.token.sweeper.duration").register(meterRegistry);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${app.auth.token-sweeper.interval:10m}",
+            initialDelayString = "${app.auth.token-sweeper.interval:10m}"
+    )
+    public void sweep() {
+        duration.record(() -> {
+            long now = System.currentTimeMillis();
+            long users = sweep(
+                    (afterExpiredAt, after) -> userRepository.findExpiredTokenOwners(now, afterExpiredAt, after, Limit.of(batchSize)),
+                    userRepository::clearExpiredTokens, now);
+            long sessions = sweep(
+                    (afterExpiredAt, after) -> sessionRepository.findExpired(now, afterExpiredAt, after, Limit.of(batchSize)),
+                    sessionRepository::deleteExpired, now);
+
+            usersCleared.increment(users);
+            sessionsCleared.increment(sessions);
+            log.info("Expired tokens cleared, users {}, sessions {}", users, sessions);
+        });
+    }
+
+    private long sweep(BiFunction<Long, String, List<ExpiredKeyView>> nextBatch,
+                       BiFunction<List<String>, Long, Integer> clear, long now) {
+        long cleared = 0;
+        long afterExpiredAt = Long.MIN_VALUE;
+        String after = "";
+        while (true) {
+            List<ExpiredKeyView> keys = nextBatch.apply(afterExpiredAt, after);
+            if (keys.isEmpty()) {
+                return cleared;
+            }
+
+            cleared += clear.apply(keys.stream().map(ExpiredKeyView::getId).toList(), now);
+            ExpiredKeyView last = keys.get(keys.size() - 1);
+            afterExpiredAt = last.getExpiredAt();
+            after = last.getId();
+            if (keys.size() < batchSize || !pause()) {
+                return cleared;
+            }
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.model.ContactResponse;
+import fuad.hamidan.model.VersionedContact;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process LRU {@link ContactCache} with a TTL, bounded by {@code max-size} entries.
+ * <p>
+ * Each node has its own copy, so a write on one node is only seen by the others once the TTL elapses.
+ * {@code contact.cache.memory} is an estimate from the string lengths plus a fixed per-entry overhead.
+ * {@link ContactResponse} is mutable, so entries are copied on the way in and out and callers never share one.
+ */
+@Component
+@ConditionalOnProperty(name = "app.contact.cache.type", havingValue = "local", matchIfMissing = true)
+public class LocalContactCache implements ContactCache {
+
+    // map node, key, record, response and string headers
+    private static final long ENTRY_OVERHEAD = 320;
+
+    private static final int STRIPES = 1024;
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final Map<Key, Entry> entries;
+
+    // bumped by every eviction, so a read that raced with a write is not cached
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    private long memory;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter sizeEvictions;
+
+    private final Counter expiredEvictions;
+
+    private final Counter explicitEvictions;
+
+    public LocalContactCache(@Value("${app.contact.cache.max-size:10000}") int maxSize,
+                             @Value("${app.contact.cache.ttl:5m}") Duration ttl,
+                             MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= LocalContactCache.this.maxSize) {
+                    return false;
+                }
+                memory -= eldest.getValue().bytes();
+                sizeEvictions.increment();
+                return true;
+            }
+        };
+
+        this.hits = Counter.builder("contact.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("contact.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("contact.cache.evictions").tag("cause", "size").register(meterRegistry);
+        this.expiredEvictions = Counter.builder("contact.cache.evictions").tag("cause", "expired").register(meterRegistry);
+        this.explicitEvictions = Counter.builder("contact.cache.evictions").tag("cause", "explicit").register(meterRegistry);
+        Gauge.builder("contact.cache.size", this, LocalContactCache::size).register(meterRegistry);
+        Gauge.builder("contact.cache.memory", this, LocalContactCache::memory).baseUnit("bytes").register(meterRegistry);
+    }
+
+    @Override
+    public Optional<VersionedContact> get(String username, String contactId) {
+        Key key = new Key(username, contactId);
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt() <= now) {
+                remove(key);
+                expiredEvictions.increment();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        hits.increment();
+        return Optional.of(copy(entry.contact()));
+    }
+
+    @Override
+    public long generation(String username, String contactId) {
+        return generations.get(new Key(username, contactId).stripe());
+    }
+
+    @Override
+    public void put(String username, VersionedContact contact, long generation) {
+        if (maxSize <= 0) {
+            return;
+        }
+
+        Key key = new Key(username, contact.contact().getId());
+        Entry entry = new Entry(copy(contact), System.currentTimeMillis() + ttlMillis, bytes(contact.contact()));
+        synchronized (entries) {
+            if (generations.get(key.stripe()) != generation) {
+                return;
+            }
+            Entry previous = entries.get(key);
+            if (previous != null && previous.contact().version() > contact.version()) {
+                return;
+            }
+            entries.put(key, entry);
+            memory += entry.bytes() - (previous == null ? 0 : previous.bytes());
+        }
+    }
+
+    @Override
+    public void evict(String username, Collection<String> contactIds) {
+        synchronized (entries) {
+            for (String contactId : contactIds) {
+                Key key = new Key(username, contactId);
+                generations.incrementAndGet(key.stripe());
+                if (remove(key)) {
+                    explicitEvictions.increment();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            memory = 0;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long memory() {
+        synchronized (entries) {
+            return memory;
+        }
+    }
+
+    private boolean remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed == null) {
+            return false;
+        }
+        memory -= removed.bytes();
+        return true;
+    }
+
+    // addresses are never part of a cached contact, see ContactResponse#getAddresses
+    private static VersionedContact copy(VersionedContact versioned) {
+        ContactResponse contact = versioned.contact();
+        return new VersionedContact(contact.getId(), contact.getFirstName(), contact.getLastName(),
+                contact.getEmail(), contact.getPhone(), versioned.version());
+    }
+
+    private static long bytes(ContactResponse contact) {
+        return ENTRY_OVERHEAD + 2L * (length(contact.getId()) + length(contact.getFirstName())
+                + length(contact.getLastName()) + length(contact.getEmail()) + length(contact.getPhone()));
+    }
+
+    private static int length(String value) {
+        return Objects.isNull(value) ? 0 : value.length();
+    }
+
+    private record Key(String username, String contactId) {
+
+        int stripe() {
+            return Math.floorMod(hashCode(), STRIPES);
+        }
+    }
+
+    private record Entry(VersionedContact contact, long expiresAt, long bytes) {
+    }
+}
@@ -0,0 +1,35 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.model.VersionedContact;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "app.contact.cache.type", havingValue = "none")
+public class NoOpContactCache implements ContactCache {
+
+    @Override
+    public Optional<VersionedContact> get(String username, String contactId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public long generation(String username, String contactId) {
+        return 0;
+    }
+
+    @Override
+    public void put(String username, VersionedContact contact, long generation) {
+    }
+
+    @Override
+    public void evict(String username, Collection<String> contactIds) {
+    }
+
+    @Override
+    public void clear() {
+    }
+}
@@ -0,0 +1,201 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.exception.RetryAfterException;
+import fuad.hamidan.repository.UserRepository;
+import fuad.hamidan.security.BCrypt;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt on a dedicated pool sized to the CPU count, so password traffic cannot occupy every
+ * request thread. When the bounded queue is full, or a task waits longer than {@code timeout},
+ * the caller gets a 503 with {@code Retry-After} instead of piling up.
+ * <p>
+ * The work factor comes from {@code app.password.log-rounds}. When {@code target-hash-time} is
+ * set, it is calibrated once at startup instead: the highest cost whose hash fits in the target
+ * on this hardware, never below {@code min-log-rounds}. Passwords stored with another cost are
+ * rehashed in the background after a successful login.
+ */
+@Slf4j
+@Service
+public class PasswordService {
+
+    private final ThreadPoolExecutor executor;
+
+    private final Duration timeout;
+
+    private final Duration retryAfter;
+
+    private final Timer waitTimer;
+
+    private final Timer hashTimer;
+
+    private final Counter rejected;
+
+    private final Counter rehashed;
+
+    private final Duration targetHashTime;
+
+    private final int minLogRounds;
+
+    private volatile int logRounds;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public PasswordService(@Value("${app.password.pool-size:0}") int poolSize,
+                           @Value("${app.password.queue-capacity:64}") int queueCapacity,
+                           @Value("${app.password.timeout:5s}") Duration timeout,
+                           @Value("${app.password.retry-after:1s}") Duration retryAfter,
+                           @Value("${app.password.log-rounds:10}") int logRounds,
+                           @Value("${app.password.min-log-rounds:10}") int minLogRounds,
+                           @Value("${app.password.target-hash-time:}") Duration targetHashTime,
+                           MeterRegistry meterRegistry) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeout = timeout;
+        this.retryAfter = retryAfter;
+        this.logRounds = logRounds;
+        this.minLogRounds = minLogRounds;
+        this.targetHashTime = targetHashTime;
+
+        this.waitTimer = Timer.builder("password.hash.wait").register(meterRegistry);
+        this.hashTimer = Timer.builder("password.hash.duration").register(meterRegistry);
+        this.rejected = Counter.builder("password.hash.rejected").register(meterRegistry);
+        this.rehashed = Counter.builder("password.rehash").register(meterRegistry);
+        Gauge.builder("password.hash.log.rounds", this, PasswordService::getLogRounds).register(meterRegistry);
+        Gauge.builder("password.hash.queue.depth", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder("password.hash.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void calibrate() {
+        if (targetHashTime == null || targetHashTime.isZero()) {
+            return;
+        }
+
+        // cost 8 is cheap enough to sample, every extra round doubles the time
+        String salt = BCrypt.gensalt(8);
+        BCrypt.hashpw("calibration", salt);
+        long start = System.nanoTime();
+        BCrypt.hashpw("calibration", salt);
+        double nanos = Math.max(1, System.nanoTime() - start);
+
+        int rounds = 8;
+        while (rounds < 31 && nanos * 2 <= targetHashTime.toNanos()) {
+            nanos *= 2;
+            rounds++;
+        }
+
+        logRounds = Math.max(minLogRounds, rounds);
+        log.info("BCrypt cost calibrated to {} for a target of {} ms", logRounds, targetHashTime.toMillis());
+    }
+
+    public int getLogRounds() {
+        return logRounds;
+    }
+
+    public String hash(String password) {
+        int rounds = logRounds;
+        return submit(() -> BCrypt.hashpw(password, BCrypt.gensalt(rounds)));
+    }
+
+    /**
+     * Schedules a rehash at the current cost when the stored hash was made with another one.
+     * Runs on the hashing pool after the response is sent, and is simply skipped when the pool is
+     * saturated; the next login will try again.
+     */
+    public void rehashIfNeeded(String username, String password, String hashed) {
+        int rounds = logRounds;
+        if (logRounds(hashed) == rounds) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                String newHash = BCrypt.hashpw(password, BCrypt.gensalt(rounds));
+                if (userRepository.updatePassword(username, hashed, newHash) > 0) {
+                    rehashed.increment();
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            log.debug("Skip rehash for {}, hashing pool is busy", username);
+        }
+    }
+
+    private static int logRounds(String hashed) {
+        // $2a$10$... or $2$10$...
+        int start = hashed.indexOf('$', 1) + 1;
+        try {
+            return Integer.parseInt(hashed.substring(start, start + 2));
+        } catch (RuntimeException exception) {
+            return -1;
+        }
+    }
+
+    public boolean verify(String password, String hashed) {
+        return submit(() -> BCrypt.checkpw(password, hashed));
+    }
+
+    private <T> T submit(Callable<T> task) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                waitTimer.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.call();
+                } finally {
+                    hashTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            rejected.increment();
+            throw new RetryAfterException(HttpStatus.SERVICE_UNAVAILABLE, "Server is busy, try again later", retryAfter);
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+            future.cancel(true);
+            rejected.increment();
+            throw new RetryAfterException(HttpStatus.SERVICE_UNAVAILABLE, "Server is busy, try again later", retryAfter);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new RetryAfterException(HttpStatus.SERVICE_UNAVAILABLE, "Server is busy, try again later", retryAfter);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
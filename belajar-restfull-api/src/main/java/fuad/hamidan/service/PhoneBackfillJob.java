@@ -0,0 +1,114 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.model.PhoneNumbers;
+import fuad.hamidan.repository.ContactPhoneView;
+import fuad.hamidan.repository.ContactRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Fills {@code contacts.phone_normalized} for rows written before the column existed, or by anything
+ * other than this application.
+ * <p>
+ * Contacts are walked by primary key in batches of {@code batch-size}, each batch updated in its own short
+ * transaction with a pause in between, like {@link ExpiredTokenSweeper}. A row is only updated while its
+ * phone is still the one that was read, so a concurrent edit is never overwritten. Phones without digits are
+ * stored as an empty string, see {@link PhoneNumbers#column}, so every row is visited once. No index serves
+ * this walk, so once a pass finds nothing left this node stops scheduling it.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.contact.phone-backfill.enabled", havingValue = "true", matchIfMissing = true)
+public class PhoneBackfillJob {
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final Duration pause;
+
+    private final Counter updated;
+
+    private volatile boolean finished;
+
+    public PhoneBackfillJob(@Value("${app.contact.phone-backfill.batch-size:500}") int batchSize,
+                            @Value("${app.contact.phone-backfill.pause:100ms}") Duration pause,
+                            MeterRegistry meterRegistry) {
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.updated = Counter.builder("contact.phone.backfill.updated").register(meterRegistry);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${app.contact.phone-backfill.interval:1h}",
+            initialDelayString = "${app.contact.phone-backfill.initial-delay:1m}"
+    )
+    public void scheduled() {
+        if (!finished && backfill() == 0) {
+            finished = true;
+            log.info("Normalized phone numbers backfill finished");
+        }
+    }
+
+    /**
+     * Runs one pass over the contacts and returns how many still needed a normalized phone.
+     */
+    public long backfill() {
+        long found = 0;
+        long total = 0;
+        String after = "";
+        while (true) {
+            List<ContactPhoneView> batch = contactRepository.findUnnormalizedPhones(after, Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            found += batch.size();
+
+            Integer count = transactionTemplate.execute(status -> {
+                int rows = 0;
+                for (ContactPhoneView contact : batch) {
+                    rows += contactRepository.updatePhoneNormalized(contact.getId(), contact.getPhone(),
+                            PhoneNumbers.column(contact.getPhone()));
+                }
+                return rows;
+            });
+            total += count;
+            updated.increment(count);
+
+            after = batch.get(batch.size() - 1).getId();
+            if (batch.size() < batchSize || !pause()) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            log.info("Normalized phone numbers backfilled, contacts {}", total);
+        }
+        return found;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -5,11 +5,12 @@ import fuad.hamidan.model.RegisterUserRequest;
 import fuad.hamidan.model.UserResponse;
 import fuad.hamidan.model.UserUpdateRequest;
 import fuad.hamidan.repository.UserRepository;
-import fuad.hamidan.security.BCrypt;
-import jakarta.transaction.Transactional;
+import fuad.hamidan.security.TokenCache;
+import fuad.hamidan.security.UserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Objects;
@@ -23,7 +24,16 @@ public class UserService {
     @Autowired
     private ValidationService validationService;
 
-    @Transactional
+    @Autowired
+    private PasswordService passwordService;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // no surrounding transaction, so no connection is held while the hash waits for a worker
     public void register(RegisterUserRequest request) {
 
         validationService.validate(request);
@@ -32,38 +42,48 @@ public class UserService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Username already exists");
         }
 
+        String password = passwordService.hash(request.getPassword());
+
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setPassword(BCrypt.hashpw(request.getPassword(), BCrypt.gensalt()));
+        user.setPassword(password);
         user.setName(request.getName());
 
         userRepository.save(user);
     }
 
-    public UserResponse get(User user) {
+    public UserResponse get(UserPrincipal principal) {
         return UserResponse.builder()
-                .username(user.getUsername())
-                .name(user.getName())
+                .username(principal.username())
+                .name(principal.name())
                 .build();
     }
 
-    @Transactional
-    public UserResponse update(User user, UserUpdateRequest request) {
+    public UserResponse update(UserPrincipal principal, UserUpdateRequest request) {
         validationService.validate(request);
 
-        if (Objects.nonNull(request.getName())){
-            user.setName(request.getName());
-        }
+        // hashed before the transaction starts, so no connection is held while it waits for a worker
+        String password = Objects.nonNull(request.getPassword()) ? passwordService.hash(request.getPassword()) : null;
 
-        if (Objects.nonNull(request.getPassword())){
-            user.setPassword(BCrypt.hashpw(request.getPassword(), BCrypt.gensalt()));
-        }
+        User userDb = transactionTemplate.execute(status -> {
+            User user = userRepository.findById(principal.username())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized"));
 
-        userRepository.save(user);
+            if (Objects.nonNull(request.getName())){
+                user.setName(request.getName());
+            }
+
+            if (Objects.nonNull(password)){
+                user.setPassword(password);
+            }
+
+            return userRepository.save(user);
+        });
+        tokenCache.evictUser(principal.username());
 
         return UserResponse.builder()
-                .name(user.getName())
-                .username(user.getUsername())
+                .name(userDb.getName())
+                .username(userDb.getUsername())
                 .build();
     }
 }
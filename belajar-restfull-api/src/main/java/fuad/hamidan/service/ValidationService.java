@@ -15,9 +15,13 @@ public class ValidationService {
     private Validator validator;
 
     public void validate(Object request){
-        Set<ConstraintViolation<Object>> constraintViolations = validator.validate(request);
+        Set<ConstraintViolation<Object>> constraintViolations = violations(request);
         if (constraintViolations.size() != 0) {
             throw new ConstraintViolationException(constraintViolations);
         }
     }
+
+    public Set<ConstraintViolation<Object>> violations(Object request){
+        return validator.validate(request);
+    }
 }
@@ -0,0 +1,83 @@
+package fuad.hamidan;
+
+import fuad.hamidan.datasource.ReadYourWrites;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two in-memory H2 databases stand in for the replicas, so each connection reveals where it was routed.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.datasource.replicas=jdbc:h2:mem:replica0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:replica1;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica-balancing=round-robin",
+        "app.datasource.read-your-writes=1h"
+})
+class ReplicaRoutingTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @AfterEach
+    void tearDown() {
+        readYourWrites.unbind();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicas() {
+        readYourWrites.bind("reader");
+
+        Set<String> databases = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            databases.add(database(true));
+        }
+
+        assertEquals(Set.of("REPLICA0", "REPLICA1"), databases);
+    }
+
+    @Test
+    void writesAndUnboundReadsGoToPrimary() {
+        assertEquals("PRIMARY", database(true));
+        assertEquals("PRIMARY", jdbcTemplate.queryForObject("select database()", String.class));
+
+        readYourWrites.bind("primary-writer");
+        assertEquals("PRIMARY", database(false));
+    }
+
+    @Test
+    void readsFollowOwnWritesWithinWindow() {
+        readYourWrites.bind("writer");
+        assertTrue(database(true).startsWith("REPLICA"));
+
+        assertEquals("PRIMARY", database(false));
+        assertEquals("PRIMARY", database(true));
+
+        readYourWrites.bind("someone-else");
+        assertTrue(database(true).startsWith("REPLICA"));
+    }
+
+    private String database(boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> jdbcTemplate.queryForObject("select database()", String.class)).toUpperCase();
+    }
+}
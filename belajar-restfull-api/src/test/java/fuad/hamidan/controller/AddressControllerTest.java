@@ -0,0 +1,405 @@
+package fuad.hamidan.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fuad.hamidan.entity.Address;
+import fuad.hamidan.entity.Contact;
+import fuad.hamidan.entity.User;
+import fuad.hamidan.model.AddressResponse;
+import fuad.hamidan.model.ContactResponse;
+import fuad.hamidan.model.CreateAddressRequest;
+import fuad.hamidan.model.UpdateAddressRequest;
+import fuad.hamidan.model.WebResponse;
+import fuad.hamidan.repository.AddressRepository;
+import fuad.hamidan.repository.ContactRepository;
+import fuad.hamidan.repository.SessionRepository;
+import fuad.hamidan.repository.UserRepository;
+import fuad.hamidan.security.BCrypt;
+import fuad.hamidan.service.ContactCache;
+import fuad.hamidan.service.ContactCountCache;
+import fuad.hamidan.service.ContactSuggestIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class AddressControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private ContactCountCache contactCountCache;
+
+    @Autowired
+    private ContactCache contactCache;
+
+    @Autowired
+    private ContactSuggestIndex contactSuggestIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        contactCountCache.clear();
+        contactCache.clear();
+        contactSuggestIndex.clear();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setUsername("admin");
+        user.setName("admin");
+        user.setToken("admin");
+        user.setTokenExpiredAt(System.currentTimeMillis() + 100000L);
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        userRepository.save(user);
+
+        User other = new User();
+        other.setUsername("other");
+        other.setName("other");
+        other.setPassword(BCrypt.hashpw("other", BCrypt.gensalt()));
+        userRepository.save(other);
+
+        saveContact("test", user);
+        saveContact("x1", other);
+    }
+
+    @Test
+    void createAddressSuccess() throws Exception {
+        CreateAddressRequest request = CreateAddressRequest.builder()
+                .street("Jalan")
+                .city("Jakarta")
+                .province("DKI")
+                .country("Indonesia")
+                .postalCode("123123")
+                .build();
+
+        mockMvc.perform(
+                post("/api/contacts/test/addresses")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<AddressResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertNull(response.getErrors());
+            assertEquals("Jalan", response.getData().getStreet());
+            assertEquals("Indonesia", response.getData().getCountry());
+            assertTrue(addressRepository.existsById(response.getData().getId()));
+        });
+    }
+
+    @Test
+    void createAddressInsertsWithoutSelect() throws Exception {
+        CreateAddressRequest request = CreateAddressRequest.builder().country("Indonesia").build();
+
+        // resolves and caches the token, so it does not count
+        mockMvc.perform(
+                get("/api/contacts/test/addresses")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(
+                post("/api/contacts/test/addresses")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        // the contact check, the collection version bump and the INSERT, no SELECT of the new address
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+    }
+
+    @Test
+    void createAddressBadRequest() throws Exception {
+        CreateAddressRequest request = CreateAddressRequest.builder().street("Jalan").build();
+
+        mockMvc.perform(
+                post("/api/contacts/test/addresses")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertNotNull(response.getErrors());
+        });
+    }
+
+    @Test
+    void createAddressContactNotFound() throws Exception {
+        CreateAddressRequest request = CreateAddressRequest.builder().country("Indonesia").build();
+
+        mockMvc.perform(
+                post("/api/contacts/x1/addresses")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isNotFound()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("Contact is not found", response.getErrors());
+        });
+    }
+
+    @Test
+    void getAddressSuccess() throws Exception {
+        saveAddress("a1", "test");
+
+        mockMvc.perform(
+                get("/api/contacts/test/addresses/a1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<AddressResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("a1", response.getData().getId());
+            assertEquals("Jalan a1", response.getData().getStreet());
+        });
+    }
+
+    @Test
+    void getAddressNotFound() throws Exception {
+        saveAddress("a1", "x1");
+
+        mockMvc.perform(
+                get("/api/contacts/x1/addresses/a1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isNotFound()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("Address is not found", response.getErrors());
+        });
+    }
+
+    @Test
+    void updateAddressSuccess() throws Exception {
+        saveAddress("a1", "test");
+        UpdateAddressRequest request = UpdateAddressRequest.builder()
+                .street("Jalan Baru")
+                .city("Bandung")
+                .country("Indonesia")
+                .build();
+
+        mockMvc.perform(
+                put("/api/contacts/test/addresses/a1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<AddressResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("Jalan Baru", response.getData().getStreet());
+        });
+
+        Address address = addressRepository.findById("a1").orElseThrow();
+        assertEquals("Bandung", address.getCity());
+        assertNull(address.getProvince());
+    }
+
+    @Test
+    void updateAddressNotFound() throws Exception {
+        saveAddress("a1", "x1");
+        UpdateAddressRequest request = UpdateAddressRequest.builder().country("Indonesia").build();
+
+        mockMvc.perform(
+                put("/api/contacts/x1/addresses/a1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isNotFound()
+        );
+
+        assertEquals("Negara", addressRepository.findById("a1").orElseThrow().getCountry());
+    }
+
+    @Test
+    void deleteAddressSuccess() throws Exception {
+        saveAddress("a1", "test");
+
+        mockMvc.perform(
+                delete("/api/contacts/test/addresses/a1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("OK", response.getData());
+        });
+
+        assertFalse(addressRepository.existsById("a1"));
+    }
+
+    @Test
+    void deleteAddressNotFound() throws Exception {
+        mockMvc.perform(
+                delete("/api/contacts/test/addresses/missing")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
+    @Test
+    void listAddressSuccess() throws Exception {
+        saveAddress("a1", "test");
+        saveAddress("a2", "test");
+        saveAddress("a3", "x1");
+
+        mockMvc.perform(
+                get("/api/contacts/test/addresses")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<AddressResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals(List.of("a1", "a2"), response.getData().stream().map(AddressResponse::getId).toList());
+        });
+
+        mockMvc.perform(
+                get("/api/contacts/x1/addresses")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
+    @Test
+    void deleteContactRemovesAddresses() throws Exception {
+        saveAddress("a1", "test");
+
+        mockMvc.perform(
+                delete("/api/contacts/test")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        assertFalse(addressRepository.existsById("a1"));
+    }
+
+    @Test
+    void searchWithAddressesUsesConstantStatements() throws Exception {
+        User admin = userRepository.findById("admin").orElseThrow();
+        for (int i = 0; i < 20; i++) {
+            saveContact("c" + i, admin);
+            saveAddress("a" + i + "_1", "c" + i);
+            saveAddress("a" + i + "_2", "c" + i);
+        }
+
+        // resolves and caches the token, so it does not count towards either page
+        searchWithAddresses(1);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<ContactResponse> small = searchWithAddresses(2);
+        long smallStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        List<ContactResponse> large = searchWithAddresses(20);
+        long largeStatements = statistics.getPrepareStatementCount();
+
+        assertEquals(2, small.size());
+        assertEquals(20, large.size());
+        large.forEach(contact -> assertEquals(2, contact.getAddresses().size()));
+        assertEquals(smallStatements, largeStatements);
+    }
+
+    private List<ContactResponse> searchWithAddresses(int size) throws Exception {
+        String body = mockMvc.perform(
+                get("/api/contacts")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .param("name", "Fuad c")
+                        .param("size", String.valueOf(size))
+                        .param("count", "false")
+                        .param("addresses", "true")
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString();
+
+        WebResponse<List<ContactResponse>> response = objectMapper.readValue(body, new TypeReference<>() {});
+        return response.getData();
+    }
+
+    private void saveContact(String id, User user) {
+        Contact contact = new Contact();
+        contact.setId(id);
+        contact.setFirstName("Fuad " + id);
+        contact.setLastName("Hamidan");
+        contact.setUser(user);
+        contactRepository.save(contact);
+    }
+
+    private void saveAddress(String id, String contactId) {
+        Address address = new Address();
+        address.setId(id);
+        address.setStreet("Jalan " + id);
+        address.setCity("Kota");
+        address.setProvince("Provinsi");
+        address.setCountry("Negara");
+        address.setPostalCode("12345");
+        address.setContact(contactRepository.findById(contactId).orElseThrow());
+        addressRepository.save(address);
+    }
+}
@@ -2,28 +2,43 @@ package fuad.hamidan.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import fuad.hamidan.entity.Session;
 import fuad.hamidan.entity.User;
 import fuad.hamidan.model.LoginUserRequest;
 import fuad.hamidan.model.TokenResponse;
 import fuad.hamidan.model.WebResponse;
+import fuad.hamidan.repository.SessionRepository;
 import fuad.hamidan.repository.UserRepository;
 import fuad.hamidan.security.BCrypt;
+import fuad.hamidan.security.TokenHash;
+import fuad.hamidan.service.ExpiredTokenSweeper;
+import fuad.hamidan.service.PasswordService;
+import jakarta.persistence.EntityManagerFactory;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Slf4j
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @AutoConfigureMockMvc
 class AuthControllerTest {
 
@@ -36,8 +51,21 @@ class AuthControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private ExpiredTokenSweeper expiredTokenSweeper;
+
+    @Autowired
+    private PasswordService passwordService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @BeforeEach
     void setUp() {
+        sessionRepository.deleteAll();
         userRepository.deleteAll();
     }
 
@@ -89,6 +117,85 @@ class AuthControllerTest {
         });
     }
 
+    @Test
+    void loginShedWhenHashingPoolIsFull() throws Exception {
+
+        User user = new User();
+        user.setName("busy");
+        user.setUsername("busy");
+        user.setPassword(BCrypt.hashpw("busy", BCrypt.gensalt()));
+        userRepository.save(user);
+
+        LoginUserRequest loginUserRequest = new LoginUserRequest();
+        loginUserRequest.setUsername("busy");
+        loginUserRequest.setPassword("busy");
+
+        // occupy every worker and queue slot so the password check is rejected
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(passwordService, "executor");
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            int capacity = executor.getMaximumPoolSize() + executor.getQueue().remainingCapacity();
+            for (int i = 0; i < capacity; i++) {
+                executor.execute(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            mockMvc.perform(
+                    post("/api/auth/login")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(loginUserRequest))
+            ).andExpectAll(
+                    status().isServiceUnavailable(),
+                    header().string(HttpHeaders.RETRY_AFTER, "1")
+            ).andDo(result ->{
+                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                });
+                Assertions.assertNotNull(response.getErrors());
+            });
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void loginThrottledAfterTooManyAttempts() throws Exception {
+
+        LoginUserRequest loginUserRequest = new LoginUserRequest();
+        loginUserRequest.setUsername("throttled");
+        loginUserRequest.setPassword("throttled");
+
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(
+                    post("/api/auth/login")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(loginUserRequest))
+            ).andExpectAll(
+                    status().isUnauthorized()
+            );
+        }
+
+        mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginUserRequest))
+        ).andExpectAll(
+                status().isTooManyRequests(),
+                header().exists("Retry-After")
+        ).andDo(result ->{
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            Assertions.assertNotNull(response.getErrors());
+        });
+    }
+
     @Test
     void loginSuccess() throws Exception {
 
@@ -119,13 +226,125 @@ class AuthControllerTest {
             Assertions.assertNotNull(response.getData().getExpiredAt());
             Assertions.assertNotNull(response.getData().getToken());
 
-            User userDb = userRepository.findById("admin").orElse(null);
-            Assertions.assertNotNull(userDb);
-            Assertions.assertEquals(response.getData().getToken(), userDb.getToken());
-            Assertions.assertEquals(response.getData().getExpiredAt(), userDb.getTokenExpiredAt());
+            Session session = sessionRepository.findById(TokenHash.of(response.getData().getToken())).orElse(null);
+            Assertions.assertNotNull(session);
+            Assertions.assertEquals(response.getData().getExpiredAt(), session.getExpiredAt());
         });
     }
 
+    @Test
+    void loginInsertsSessionWithoutSelect() throws Exception {
+
+        User user = new User();
+        user.setName("admin");
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        userRepository.save(user);
+
+        LoginUserRequest loginUserRequest = new LoginUserRequest();
+        loginUserRequest.setUsername("admin");
+        loginUserRequest.setPassword("admin");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginUserRequest))
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        // the user lookup and the session INSERT, no SELECT of the new session before it
+        Assertions.assertEquals(2, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(1, statistics.getEntityInsertCount());
+    }
+
+    @Test
+    void loginRehashesOutdatedCost() throws Exception {
+
+        User user = new User();
+        user.setName("admin");
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt(4)));
+        userRepository.save(user);
+
+        LoginUserRequest loginUserRequest = new LoginUserRequest();
+        loginUserRequest.setUsername("admin");
+        loginUserRequest.setPassword("admin");
+        login(loginUserRequest);
+
+        String password = user.getPassword();
+        for (int i = 0; i < 50 && password.equals(user.getPassword()); i++) {
+            Thread.sleep(100);
+            password = userRepository.findById("admin").orElseThrow().getPassword();
+        }
+
+        Assertions.assertTrue(password.startsWith("$2a$10$"));
+        Assertions.assertTrue(BCrypt.checkpw("admin", password));
+    }
+
+    @Test
+    void loginKeepsOtherSessions() throws Exception {
+
+        User user = new User();
+        user.setName("admin");
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        userRepository.save(user);
+
+        LoginUserRequest loginUserRequest = new LoginUserRequest();
+        loginUserRequest.setUsername("admin");
+        loginUserRequest.setPassword("admin");
+
+        String first = login(loginUserRequest);
+        String second = login(loginUserRequest);
+        Assertions.assertNotEquals(first, second);
+
+        mockMvc.perform(
+                get("/api/user/current")
+                        .header("X-API-TOKEN", first)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                delete("/api/auth/logout")
+                        .header("X-API-TOKEN", second)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get("/api/user/current")
+                        .header("X-API-TOKEN", first)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get("/api/user/current")
+                        .header("X-API-TOKEN", second)
+        ).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+
+    private String login(LoginUserRequest request) throws Exception {
+        String body = mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString();
+
+        WebResponse<TokenResponse> response = objectMapper.readValue(body, new TypeReference<>() {});
+        return response.getData().getToken();
+    }
+
     @Test
     void logoutSuccess() throws Exception{
         User user = new User();
@@ -178,4 +397,61 @@ class AuthControllerTest {
         });
     }
 
+    @Test
+    void sweeperClearsExpiredTokens() {
+        User user = new User();
+        user.setName("admin");
+        user.setUsername("admin");
+        user.setToken("admin");
+        user.setTokenExpiredAt(System.currentTimeMillis() - 100000L);
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        userRepository.save(user);
+
+        Session expired = new Session(TokenHash.of("expired"), user, System.currentTimeMillis() - 100000L, 0L);
+        Session active = new Session(TokenHash.of("active"), user, System.currentTimeMillis() + 100000L, 0L);
+        sessionRepository.save(expired);
+        sessionRepository.save(active);
+
+        expiredTokenSweeper.sweep();
+
+        User userDb = userRepository.findById("admin").orElse(null);
+        Assertions.assertNotNull(userDb);
+        Assertions.assertNull(userDb.getToken());
+        Assertions.assertNull(userDb.getTokenExpiredAt());
+        Assertions.assertFalse(sessionRepository.existsById(TokenHash.of("expired")));
+        Assertions.assertTrue(sessionRepository.existsById(TokenHash.of("active")));
+    }
+
+    @Test
+    void logoutEvictsCachedToken() throws Exception{
+        User user = new User();
+        user.setName("admin");
+        user.setUsername("admin");
+        user.setToken("admin");
+        user.setTokenExpiredAt(System.currentTimeMillis() + 100000L);
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        userRepository.save(user);
+
+        mockMvc.perform(
+                get("/api/user/current")
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                delete("/api/auth/logout")
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get("/api/user/current")
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+
 }
\ No newline at end of file
@@ -5,26 +5,44 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import fuad.hamidan.entity.Contact;
 import fuad.hamidan.entity.User;
+import fuad.hamidan.model.BulkContactResponse;
+import fuad.hamidan.model.BulkDeleteContactRequest;
+import fuad.hamidan.model.BulkUpdateContactRequest;
+import fuad.hamidan.model.BulkWriteResponse;
 import fuad.hamidan.model.ContactResponse;
 import fuad.hamidan.model.CreateContactRequest;
+import fuad.hamidan.model.ImportJobResponse;
 import fuad.hamidan.model.UpdateContactRequest;
+import fuad.hamidan.model.VersionedContact;
 import fuad.hamidan.model.WebResponse;
 import fuad.hamidan.repository.ContactRepository;
+import fuad.hamidan.repository.ContactSpecifications;
+import fuad.hamidan.repository.SessionRepository;
 import fuad.hamidan.repository.UserRepository;
 import fuad.hamidan.security.BCrypt;
+import fuad.hamidan.service.ContactCache;
+import fuad.hamidan.service.ContactCountCache;
+import fuad.hamidan.service.ContactSuggestIndex;
+import fuad.hamidan.service.PhoneBackfillJob;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Slf4j
@@ -41,13 +59,35 @@ class ContactControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SessionRepository sessionRepository;
+
     @Autowired
     private ContactRepository contactRepository;
 
+    @Autowired
+    private ContactCountCache contactCountCache;
+
+    @Autowired
+    private ContactCache contactCache;
+
+    @Autowired
+    private ContactSuggestIndex contactSuggestIndex;
+
+    @Autowired
+    private PhoneBackfillJob phoneBackfillJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setUp() {
 
         contactRepository.deleteAll();
+        contactCountCache.clear();
+        contactCache.clear();
+        contactSuggestIndex.clear();
+        sessionRepository.deleteAll();
         userRepository.deleteAll();
 
         User user = new User();
@@ -388,6 +428,502 @@ class ContactControllerTest {
         });
     }
 
+    @Test
+    void createBulkSuccess() throws Exception {
+        List<CreateContactRequest> contacts = List.of(
+                CreateContactRequest.builder().firstName("Fuad").lastName("Hamidan").email("fuad@gmail.com").build(),
+                CreateContactRequest.builder().firstName("").email("salah").build(),
+                CreateContactRequest.builder().firstName("Budi").phone("0812345").build()
+        );
+
+        mockMvc.perform(
+                post("/api/contacts/bulk")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(contacts))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<BulkContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals(3, response.getData().size());
+
+            assertNotNull(response.getData().get(0).getId());
+            assertNull(response.getData().get(0).getErrors());
+            assertNull(response.getData().get(1).getId());
+            assertNotNull(response.getData().get(1).getErrors());
+            assertEquals(2, response.getData().get(2).getIndex());
+
+            Contact contact = contactRepository.findById(response.getData().get(2).getId()).orElse(null);
+            assertNotNull(contact);
+            assertEquals("Budi", contact.getFirstName());
+            assertEquals("0812345", contact.getPhone());
+        });
+
+        assertEquals(2, contactRepository.count());
+    }
+
+    @Test
+    void updateBulkSuccess() throws Exception {
+        saveBulkContacts();
+
+        BulkUpdateContactRequest request = BulkUpdateContactRequest.builder()
+                .ids(List.of("b1", "b2", "b2", "x1", "missing"))
+                .lastName("Baru")
+                .build();
+
+        mockMvc.perform(
+                patch("/api/contacts/bulk")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<BulkWriteResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals(4, response.getData().getRequested());
+            assertEquals(2, response.getData().getAffected());
+        });
+
+        Contact updated = contactRepository.findById("b1").orElseThrow();
+        assertEquals("Baru", updated.getLastName());
+        assertEquals("Fuad b1", updated.getFirstName());
+        assertEquals("Hamidan", contactRepository.findById("b3").orElseThrow().getLastName());
+        assertEquals("Hamidan", contactRepository.findById("x1").orElseThrow().getLastName());
+    }
+
+    @Test
+    void updateBulkNothingToUpdate() throws Exception {
+        BulkUpdateContactRequest request = BulkUpdateContactRequest.builder().ids(List.of("b1")).build();
+
+        mockMvc.perform(
+                patch("/api/contacts/bulk")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isBadRequest()
+        );
+    }
+
+    @Test
+    void deleteBulkSuccess() throws Exception {
+        saveBulkContacts();
+
+        BulkDeleteContactRequest request = BulkDeleteContactRequest.builder()
+                .ids(List.of("b1", "b3", "x1"))
+                .build();
+
+        mockMvc.perform(
+                delete("/api/contacts/bulk")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<BulkWriteResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals(3, response.getData().getRequested());
+            assertEquals(2, response.getData().getAffected());
+        });
+
+        assertFalse(contactRepository.existsById("b1"));
+        assertTrue(contactRepository.existsById("b2"));
+        assertFalse(contactRepository.existsById("b3"));
+        assertTrue(contactRepository.existsById("x1"));
+    }
+
+    private void saveBulkContacts() {
+        User admin = userRepository.findById("admin").orElseThrow();
+        User other = new User();
+        other.setUsername("other");
+        other.setName("other");
+        other.setPassword(BCrypt.hashpw("other", BCrypt.gensalt()));
+        userRepository.save(other);
+
+        for (String id : List.of("b1", "b2", "b3", "x1")) {
+            Contact contact = new Contact();
+            contact.setId(id);
+            contact.setFirstName("Fuad " + id);
+            contact.setLastName("Hamidan");
+            contact.setUser(id.startsWith("x") ? other : admin);
+            contactRepository.save(contact);
+        }
+    }
+
+    @Test
+    void exportSuccess() throws Exception {
+        saveBulkContacts();
+
+        MvcResult result = mockMvc.perform(
+                get("/api/contacts/export")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpect(request().asyncStarted()).andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpectAll(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertEquals(3, lines.size());
+        assertTrue(body.endsWith("\n"));
+        List<String> ids = new ArrayList<>();
+        for (String line : lines) {
+            ContactResponse contact = objectMapper.readValue(line, ContactResponse.class);
+            assertEquals("Hamidan", contact.getLastName());
+            ids.add(contact.getId());
+        }
+        assertEquals(List.of("b1", "b2", "b3"), ids.stream().sorted().toList());
+    }
+
+    @Test
+    void importCsvSuccess() throws Exception {
+        String csv = """
+                firstName,lastName,email,phone
+                Fuad,Hamidan,fuad@gmail.com,0812345
+                ,Tanpa Nama,,
+                Budi,,budi@gmail.com,
+                """;
+
+        ImportJobResponse job = importContacts("text/csv", csv);
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals(3, job.getProcessed());
+        assertEquals(2, job.getImported());
+        assertEquals(1, job.getRejected());
+        assertEquals(2, job.getErrors().get(0).getRow());
+
+        assertEquals(2, contactRepository.count());
+        Contact contact = contactRepository.findAll().stream()
+                .filter(c -> c.getFirstName().equals("Budi"))
+                .findFirst().orElseThrow();
+        assertNull(contact.getLastName());
+        assertEquals("budi@gmail.com", contact.getEmail());
+    }
+
+    @Test
+    void importNdjsonSuccess() throws Exception {
+        String ndjson = """
+                {"firstName":"Fuad","lastName":"Hamidan"}
+                {"firstName":"Budi","email":"bukan email"}
+                {"firstName":"Siti","phone":"0899"}
+                """;
+
+        ImportJobResponse job = importContacts(MediaType.APPLICATION_NDJSON_VALUE, ndjson);
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals(2, job.getImported());
+        assertEquals(1, job.getRejected());
+        assertEquals(2, contactRepository.count());
+    }
+
+    @Test
+    void importStatusNotFound() throws Exception {
+        mockMvc.perform(
+                get("/api/contacts/import/salah")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
+    private ImportJobResponse importContacts(String contentType, String body) throws Exception {
+        WebResponse<ImportJobResponse> started = objectMapper.readValue(mockMvc.perform(
+                post("/api/contacts/import")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(contentType)
+                        .content(body)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isAccepted()
+        ).andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+
+        for (int i = 0; i < 100; i++) {
+            WebResponse<ImportJobResponse> response = objectMapper.readValue(mockMvc.perform(
+                    get("/api/contacts/import/" + started.getData().getId())
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("X-API-TOKEN", "admin")
+            ).andExpectAll(
+                    status().isOk()
+            ).andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+
+            String status = response.getData().getStatus();
+            if (status.equals("COMPLETED") || status.equals("FAILED")) {
+                return response.getData();
+            }
+            Thread.sleep(50);
+        }
+
+        return fail("Import did not finish");
+    }
+
+    @Test
+    void suggestFollowsMutations() throws Exception {
+        saveBulkContacts();
+
+        assertEquals(List.of("b1", "b2", "b3"), suggest("FUAD"));
+        assertEquals(List.of("b2"), suggest("fuad b2"));
+        assertEquals(List.of(), suggest("x1"));
+        assertEquals(1, contactSuggestIndex.size());
+
+        CreateContactRequest request = new CreateContactRequest("Zaïd", "Baru", "zaid@example.com", "0812");
+        mockMvc.perform(
+                post("/api/contacts")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+        assertEquals(1, suggest("zai").size());
+        assertEquals(1, suggest("zaid@ex").size());
+
+        mockMvc.perform(
+                delete("/api/contacts/b2")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+        assertEquals(List.of("b1", "b3"), suggest("fuad"));
+
+        // the database prefix query answers users whose index is too large to keep
+        assertEquals(List.of("b1", "b3"), suggestFromDatabase("Fuad b"));
+        assertEquals(List.of("b1"), suggestFromDatabase("Fuad b1"));
+        assertEquals(List.of(), suggestFromDatabase("Fuad_"));
+
+        mockMvc.perform(
+                get("/api/contacts/suggest")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .param("q", "fuad")
+                        .param("limit", "0")
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isBadRequest()
+        );
+    }
+
+    private List<String> suggestFromDatabase(String prefix) {
+        return contactRepository.findResponses(ContactSpecifications.prefix("admin", prefix), PageRequest.of(0, 10, Sort.by("id")))
+                .map(ContactResponse::getId)
+                .getContent();
+    }
+
+    private List<String> suggest(String query) throws Exception {
+        MvcResult result = mockMvc.perform(
+                get("/api/contacts/suggest")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .param("q", query)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn();
+
+        WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+        return response.getData().stream().map(ContactResponse::getId).toList();
+    }
+
+    @Test
+    void getContactCachedUntilChanged() throws Exception {
+        saveBulkContacts();
+
+        mockMvc.perform(
+                get("/api/contacts/b1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+        assertTrue(contactCache.get("admin", "b1").isPresent());
+
+        BulkUpdateContactRequest request = BulkUpdateContactRequest.builder()
+                .ids(List.of("b1"))
+                .lastName("Baru")
+                .build();
+        mockMvc.perform(
+                patch("/api/contacts/bulk")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+        assertTrue(contactCache.get("admin", "b1").isEmpty());
+
+        mockMvc.perform(
+                get("/api/contacts/b1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ContactResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("Baru", response.getData().getLastName());
+        });
+
+        mockMvc.perform(
+                delete("/api/contacts/b1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get("/api/contacts/b1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
+    @Test
+    void getContactRacingUpdateIsNotCached() throws Exception {
+        saveBulkContacts();
+
+        // a reader of b1 takes the generation and reads the row, then an update commits before it caches the row
+        long generation = contactCache.generation("admin", "b1");
+        VersionedContact stale = contactRepository.findVersioned("admin", "b1").orElseThrow();
+
+        UpdateContactRequest request = new UpdateContactRequest();
+        request.setFirstName("Fuad");
+        request.setLastName("Baru");
+        request.setEmail("fuad@example.com");
+        request.setPhone("0812");
+        mockMvc.perform(
+                put("/api/contacts/b1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        contactCache.put("admin", stale, generation);
+        assertTrue(contactCache.get("admin", "b1").isEmpty());
+
+        mockMvc.perform(
+                get("/api/contacts/b1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ContactResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("Baru", response.getData().getLastName());
+        });
+
+        // an older version never replaces a newer one
+        contactCache.put("admin", stale, contactCache.generation("admin", "b1"));
+        assertEquals("Baru", contactCache.get("admin", "b1").orElseThrow().contact().getLastName());
+    }
+
+    @Test
+    void getContactNotModified() throws Exception {
+        saveBulkContacts();
+
+        String etag = mockMvc.perform(
+                get("/api/contacts/b1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(
+                get("/api/contacts/b1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+                        .header("If-None-Match", etag)
+        ).andExpectAll(
+                status().isNotModified()
+        ).andDo(result -> assertEquals("", result.getResponse().getContentAsString()));
+
+        UpdateContactRequest request = new UpdateContactRequest("Fuad", "Baru", "fuad@gmail.com", "0812");
+        mockMvc.perform(
+                put("/api/contacts/b1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get("/api/contacts/b1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+                        .header("If-None-Match", etag)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> assertNotEquals(etag, result.getResponse().getHeader("ETag")));
+    }
+
+    @Test
+    void searchNotModified() throws Exception {
+        saveBulkContacts();
+
+        String etag = mockMvc.perform(
+                get("/api/contacts")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+                        .header("If-None-Match", etag)
+        ).andExpectAll(
+                status().isNotModified()
+        );
+
+        User user = userRepository.findById("admin").orElseThrow();
+        user.setName("nama baru");
+        userRepository.save(user);
+
+        BulkDeleteContactRequest request = BulkDeleteContactRequest.builder().ids(List.of("b2")).build();
+        mockMvc.perform(
+                delete("/api/contacts/bulk")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+                        .header("If-None-Match", etag)
+        ).andExpectAll(
+                status().isOk()
+        );
+        assertEquals(1L, userRepository.findById("admin").orElseThrow().getContactsVersion());
+    }
+
     @Test
     void searchSuccess() throws Exception {
         User user = userRepository.findById("admin").orElse(null);
@@ -415,4 +951,175 @@ class ContactControllerTest {
             log.info("DATA: {}", response.getData());
         });
     }
+
+    @Test
+    void searchWithCursor() throws Exception {
+        User user = userRepository.findById("admin").orElse(null);
+        for (int i = 1; i<=25; i++){
+            Contact contact = new Contact();
+            contact.setId("33" + i);
+            contact.setFirstName("Fuad " + i);
+            contact.setLastName(i % 5 == 0 ? null : "Hamidan" + (i % 3));
+            contact.setEmail("fuad" + i +"@gmail.com");
+            contact.setPhone("343434343" + i);
+            contact.setUser(user);
+            contactRepository.save(contact);
+        }
+
+        List<ContactResponse> contacts = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        while (cursor != null) {
+            String current = cursor;
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(mockMvc.perform(
+                    get("/api/contacts")
+                            .param("cursor", current)
+                            .param("size", "10")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("X-API-TOKEN", "admin")
+            ).andExpectAll(
+                    status().isOk()
+            ).andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+
+            assertTrue(response.getData().size() <= 10);
+            assertNull(response.getPage().getTotalPage());
+            contacts.addAll(response.getData());
+            cursor = response.getPage().getNextCursor();
+            pages++;
+        }
+
+        assertEquals(3, pages);
+        assertEquals(25, contacts.size());
+        assertEquals(25, contacts.stream().map(ContactResponse::getId).distinct().count());
+        for (int i = 0; i < 5; i++) {
+            assertNull(contacts.get(i).getLastName());
+        }
+        for (int i = 6; i < contacts.size(); i++) {
+            assertTrue(contacts.get(i - 1).getLastName().compareTo(contacts.get(i).getLastName()) <= 0);
+        }
+    }
+
+    @Test
+    void searchWithInvalidCursor() throws Exception {
+        mockMvc.perform(
+                get("/api/contacts")
+                        .param("cursor", "not-a-cursor")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isBadRequest()
+        );
+    }
+
+    @Test
+    void searchByNormalizedPhone() throws Exception {
+        User admin = userRepository.findById("admin").orElseThrow();
+        List<String> phones = List.of("+62 812-3456-7890", "0812 3456 7891", "(021) 555 1234", "n/a");
+        for (int i = 0; i < phones.size(); i++) {
+            Contact contact = new Contact();
+            contact.setId("p" + i);
+            contact.setFirstName("Fuad");
+            contact.setPhone(phones.get(i));
+            contact.setUser(admin);
+            contactRepository.save(contact);
+        }
+        assertEquals("6281234567890", contactRepository.findById("p0").orElseThrow().getPhoneNormalized());
+
+        assertEquals(2, search("phone", "0812-3456").getData().size());
+        assertEquals(List.of("p1"), search("phone", "+62 812 3456 7891").getData().stream().map(ContactResponse::getId).toList());
+        assertEquals(List.of("p2"), search("phone", "021555").getData().stream().map(ContactResponse::getId).toList());
+
+        assertEquals("", contactRepository.findById("p3").orElseThrow().getPhoneNormalized());
+
+        // rows written before the column existed are still found on their raw phone until the backfill reaches them
+        jdbcTemplate.update("update contacts set phone_normalized = null");
+        assertEquals(List.of("p1"), search("phone", "0812").getData().stream().map(ContactResponse::getId).toList());
+        assertEquals(List.of("p3"), search("phone", "n/a").getData().stream().map(ContactResponse::getId).toList());
+
+        assertEquals(4, phoneBackfillJob.backfill());
+        assertEquals("6281234567891", contactRepository.findById("p1").orElseThrow().getPhoneNormalized());
+        assertEquals("", contactRepository.findById("p3").orElseThrow().getPhoneNormalized());
+        assertEquals(2, search("phone", "0812").getData().size());
+        assertEquals(0, phoneBackfillJob.backfill());
+    }
+
+    @Test
+    void searchWithoutCount() throws Exception {
+        User user = userRepository.findById("admin").orElse(null);
+        for (int i = 1; i<=15; i++){
+            Contact contact = new Contact();
+            contact.setId("44" + i);
+            contact.setFirstName("Fuad " + i);
+            contact.setLastName("Hamidan"  + i);
+            contact.setEmail("fuad" + i +"@gmail.com");
+            contact.setPhone("343434343" + i);
+            contact.setUser(user);
+            contactRepository.save(contact);
+        }
+
+        WebResponse<List<ContactResponse>> first = search("count", "false", "page", "0");
+        assertEquals(10, first.getData().size());
+        assertTrue(first.getPage().getHasNext());
+        assertNull(first.getPage().getTotalPage());
+
+        WebResponse<List<ContactResponse>> last = search("count", "false", "page", "1");
+        assertEquals(5, last.getData().size());
+        assertFalse(last.getPage().getHasNext());
+    }
+
+    @Test
+    void searchCountFollowsMutations() throws Exception {
+        User user = userRepository.findById("admin").orElse(null);
+        for (int i = 1; i<=10; i++){
+            Contact contact = new Contact();
+            contact.setId("55" + i);
+            contact.setFirstName("Fuad " + i);
+            contact.setLastName("Hamidan"  + i);
+            contact.setEmail("fuad" + i +"@gmail.com");
+            contact.setPhone("343434343" + i);
+            contact.setUser(user);
+            contactRepository.save(contact);
+        }
+
+        assertEquals(2, search("size", "5").getPage().getTotalPage());
+        assertEquals(2, search("size", "5", "page", "1").getPage().getTotalPage());
+
+        CreateContactRequest request = new CreateContactRequest();
+        request.setFirstName("Fuad");
+        request.setLastName("Baru");
+        mockMvc.perform(
+                post("/api/contacts")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        assertEquals(3, search("size", "5").getPage().getTotalPage());
+
+        mockMvc.perform(
+                delete("/api/contacts/551")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "admin")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        assertEquals(2, search("size", "5").getPage().getTotalPage());
+    }
+
+    private WebResponse<List<ContactResponse>> search(String... params) throws Exception {
+        var request = get("/api/contacts")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "admin");
+        for (int i = 0; i < params.length; i += 2) {
+            request.param(params[i], params[i + 1]);
+        }
+
+        return objectMapper.readValue(mockMvc.perform(request)
+                .andExpectAll(status().isOk())
+                .andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+    }
 }
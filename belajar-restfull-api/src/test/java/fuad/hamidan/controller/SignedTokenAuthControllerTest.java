@@ -0,0 +1,107 @@
+package fuad.hamidan.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fuad.hamidan.entity.User;
+import fuad.hamidan.model.LoginUserRequest;
+import fuad.hamidan.model.TokenResponse;
+import fuad.hamidan.model.WebResponse;
+import fuad.hamidan.repository.SessionRepository;
+import fuad.hamidan.repository.UserRepository;
+import fuad.hamidan.security.BCrypt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "app.auth.token-mode=signed",
+        "app.auth.token-secret=test-secret"
+})
+@AutoConfigureMockMvc
+class SignedTokenAuthControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @BeforeEach
+    void setUp() {
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setName("admin");
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        userRepository.save(user);
+    }
+
+    @Test
+    void loginLogoutWithSignedToken() throws Exception {
+        LoginUserRequest request = new LoginUserRequest("admin", "admin");
+
+        String body = mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString();
+
+        WebResponse<TokenResponse> response = objectMapper.readValue(body, new TypeReference<>() {});
+        String token = response.getData().getToken();
+        assertNotNull(token);
+
+        User userDb = userRepository.findById("admin").orElse(null);
+        assertNotNull(userDb);
+        assertNull(userDb.getToken());
+
+        mockMvc.perform(
+                get("/api/user/current")
+                        .header("X-API-TOKEN", token)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                delete("/api/auth/logout")
+                        .header("X-API-TOKEN", token)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get("/api/user/current")
+                        .header("X-API-TOKEN", token)
+        ).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+
+    @Test
+    void tamperedTokenUnauthorized() throws Exception {
+        mockMvc.perform(
+                get("/api/user/current")
+                        .header("X-API-TOKEN", "YWRtaW4.9999999999999.AAAA")
+        ).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+}
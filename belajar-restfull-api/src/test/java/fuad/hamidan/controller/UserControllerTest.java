@@ -3,10 +3,13 @@ package fuad.hamidan.controller;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import fuad.hamidan.entity.User;
+import fuad.hamidan.model.LoginUserRequest;
 import fuad.hamidan.model.RegisterUserRequest;
+import fuad.hamidan.model.TokenResponse;
 import fuad.hamidan.model.UserResponse;
 import fuad.hamidan.model.UserUpdateRequest;
 import fuad.hamidan.model.WebResponse;
+import fuad.hamidan.repository.SessionRepository;
 import fuad.hamidan.repository.UserRepository;
 import fuad.hamidan.security.BCrypt;
 import lombok.extern.slf4j.Slf4j;
@@ -33,11 +36,15 @@ class UserControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SessionRepository sessionRepository;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @BeforeEach
     void setUp() {
+        sessionRepository.deleteAll();
         userRepository.deleteAll();
     }
 
@@ -202,4 +209,61 @@ class UserControllerTest {
             assertTrue(BCrypt.checkpw(request.getPassword(), userDb.getPassword()));
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateUserIsSeenByEverySession() throws Exception{
+        User user = new User();
+        user.setName("Fuad");
+        user.setUsername("fuad");
+        user.setPassword(BCrypt.hashpw("fuad", BCrypt.gensalt()));
+        userRepository.save(user);
+
+        String token = login("fuad", "fuad");
+        String otherToken = login("fuad", "fuad");
+        assertEquals("Fuad", current(otherToken).getName());
+
+        UserUpdateRequest request = new UserUpdateRequest();
+        request.setName("hamidan");
+
+        mockMvc.perform(
+                patch("/api/users/current")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", token)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        assertEquals("hamidan", current(otherToken).getName());
+    }
+
+    private String login(String username, String password) throws Exception{
+        LoginUserRequest request = new LoginUserRequest(username, password);
+
+        String body = mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString();
+
+        WebResponse<TokenResponse> response = objectMapper.readValue(body, new TypeReference<>() {});
+        return response.getData().getToken();
+    }
+
+    private UserResponse current(String token) throws Exception{
+        String body = mockMvc.perform(
+                get("/api/user/current")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", token)
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString();
+
+        WebResponse<UserResponse> response = objectMapper.readValue(body, new TypeReference<>() {});
+        return response.getData();
+    }
+}
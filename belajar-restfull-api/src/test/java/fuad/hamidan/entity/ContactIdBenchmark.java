@@ -0,0 +1,126 @@
+package fuad.hamidan.entity;
+
+import fuad.hamidan.model.UuidV7;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of contact-shaped rows by primary key type: random UUID strings as today, version 7 UUID
+ * strings, and version 7 UUIDs as {@code BINARY(16)} through {@link UuidBinaryConverter}.
+ * <p>
+ * Each iteration recreates a scratch table with the same secondary index as {@code contacts} and inserts
+ * {@code rows} rows in batches, which is where random keys start splitting pages once the index no longer fits
+ * in the buffer pool. Table and index sizes are printed after each iteration. Needs a MySQL database, run with
+ * {@code mvn -Pbenchmark -DskipTests verify -Dbenchmark=ContactIdBenchmark}, pointing at another database with
+ * {@code -Dbenchmark="ContactIdBenchmark -jvmArgsAppend -Dbenchmark.jdbc.url=jdbc:mysql://..."}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ContactIdBenchmark {
+
+    private static final String TABLE = "bench_contact_ids";
+
+    private static final int BATCH_SIZE = 1000;
+
+    public enum KeyType {
+        RANDOM_CHAR36, V7_CHAR36, V7_BINARY16
+    }
+
+    @Param({"1000000", "5000000"})
+    private int rows;
+
+    @Param({"RANDOM_CHAR36", "V7_CHAR36", "V7_BINARY16"})
+    private KeyType keyType;
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.jdbc.url",
+                        "jdbc:mysql://localhost:3306/belajar_spring_restfull_api?rewriteBatchedStatements=true"),
+                System.getProperty("benchmark.jdbc.username", "root"),
+                System.getProperty("benchmark.jdbc.password", ""));
+    }
+
+    @Setup(Level.Iteration)
+    public void createTable() throws SQLException {
+        String id = keyType == KeyType.V7_BINARY16 ? "BINARY(16)" : "VARCHAR(100)";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " (" +
+                    "id " + id + " NOT NULL, " +
+                    "username VARCHAR(100) NOT NULL, " +
+                    "first_name VARCHAR(100) NOT NULL, " +
+                    "last_name VARCHAR(100), " +
+                    "phone VARCHAR(100), " +
+                    "email VARCHAR(100), " +
+                    "PRIMARY KEY (id), " +
+                    "INDEX idx_username_name (username, last_name, first_name)" +
+                    ") ENGINE InnoDB");
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void printSize() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE TABLE " + TABLE);
+            try (ResultSet resultSet = statement.executeQuery("SELECT data_length, index_length " +
+                    "FROM information_schema.tables WHERE table_schema = database() AND table_name = '" + TABLE + "'")) {
+                if (resultSet.next()) {
+                    System.out.printf("%n%s rows=%d data=%dMB index=%dMB%n", keyType, rows,
+                            resultSet.getLong(1) >> 20, resultSet.getLong(2) >> 20);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void insert() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE +
+                " (id, username, first_name, last_name, phone, email) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                switch (keyType) {
+                    case RANDOM_CHAR36 -> insert.setString(1, UUID.randomUUID().toString());
+                    case V7_CHAR36 -> insert.setString(1, UuidV7.next());
+                    case V7_BINARY16 -> insert.setBytes(1, UuidBinaryConverter.toBytes(UuidV7.nextUuid()));
+                }
+                insert.setString(2, "bench_" + (i % 100));
+                insert.setString(3, "First" + i);
+                insert.setString(4, "Last" + (i % 1000));
+                insert.setString(5, "0812" + i);
+                insert.setString(6, "contact" + i + "@example.com");
+                insert.addBatch();
+                if (i % BATCH_SIZE == BATCH_SIZE - 1) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package fuad.hamidan.entity;
+
+import fuad.hamidan.model.UuidV7;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidBinaryConverterTest {
+
+    private final UuidBinaryConverter converter = new UuidBinaryConverter();
+
+    @Test
+    void roundTripsInCanonicalByteOrder() {
+        String id = "0190a3c4-5b6d-7e8f-9a0b-1c2d3e4f5a6b";
+
+        byte[] bytes = converter.convertToDatabaseColumn(id);
+        assertArrayEquals(HexFormat.of().parseHex("0190a3c45b6d7e8f9a0b1c2d3e4f5a6b"), bytes);
+        assertEquals(id, converter.convertToEntityAttribute(bytes));
+    }
+
+    @Test
+    void keepsTheOrderOfTimeOrderedIds() {
+        String first = UuidV7.next();
+        String second = UuidV7.next();
+
+        byte[] firstBytes = converter.convertToDatabaseColumn(first);
+        byte[] secondBytes = converter.convertToDatabaseColumn(second);
+        assertTrue(Arrays.compareUnsigned(firstBytes, secondBytes) < 0);
+        assertEquals(first, converter.convertToEntityAttribute(firstBytes));
+        assertEquals(second, converter.convertToEntityAttribute(secondBytes));
+    }
+
+    @Test
+    void nullsAndWrongLengths() {
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute(new byte[15]));
+    }
+}
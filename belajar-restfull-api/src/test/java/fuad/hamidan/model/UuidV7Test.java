@@ -0,0 +1,50 @@
+package fuad.hamidan.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7Test {
+
+    @Test
+    void versionVariantAndTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.nextUuid();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+
+        // a burst of more than 4096 ids in one millisecond carries the counter into the next one, so allow a few
+        long timestamp = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(timestamp >= before && timestamp <= after + 5, "timestamp " + timestamp);
+    }
+
+    @Test
+    void idsIncreaseWithinTheSameMillisecond() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(UuidV7.next());
+        }
+
+        boolean sameMillisecond = false;
+        for (int i = 1; i < ids.size(); i++) {
+            // the canonical lowercase hex form sorts like the unsigned 128-bit value
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, ids.get(i - 1) + " before " + ids.get(i));
+            sameMillisecond |= millis(ids.get(i - 1)) == millis(ids.get(i));
+
+            UUID uuid = UUID.fromString(ids.get(i));
+            assertEquals(7, uuid.version());
+            assertEquals(2, uuid.variant());
+        }
+        assertTrue(sameMillisecond, "no two ids shared a millisecond, the counter was not exercised");
+    }
+
+    private static long millis(String id) {
+        return UUID.fromString(id).getMostSignificantBits() >>> 16;
+    }
+}
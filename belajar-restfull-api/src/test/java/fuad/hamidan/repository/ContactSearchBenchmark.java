@@ -0,0 +1,174 @@
+package fuad.hamidan.repository;
+
+import fuad.hamidan.model.PhoneNumbers;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the SQL produced by {@link ContactSpecifications#like} and {@link ContactSpecifications#fulltext}
+ * for one page plus its count query, the same pair {@code findAll(specification, pageable)} issues.
+ * <p>
+ * Needs the MySQL schema from {@code database.sql}, including the FULLTEXT indexes. Contacts are seeded once
+ * per size under the users {@code bench_10000}, {@code bench_100000} and {@code bench_1000000} and kept.
+ * Run with {@code mvn -Pbenchmark -DskipTests verify -Dbenchmark=ContactSearchBenchmark}, pointing at another
+ * database with {@code -Dbenchmark="ContactSearchBenchmark -jvmArgsAppend -Dbenchmark.jdbc.url=jdbc:mysql://..."}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContactSearchBenchmark {
+
+    private static final String[] NAMES = {
+            "Budi", "Siti", "Agus", "Dewi", "Fuad", "Rina", "Andi", "Wati", "Joko", "Sari",
+            "Hamidan", "Putri", "Yusuf", "Indah", "Rizki", "Ayu", "Bayu", "Lestari", "Eko", "Nurul"
+    };
+
+    private static final String COLUMNS = "select id, first_name, last_name, email, phone from contacts ";
+
+    @Param({"10000", "100000", "1000000"})
+    private int contacts;
+
+    @Param({"LIKE", "FULLTEXT"})
+    private ContactSearchBackend backend;
+
+    @Param({"name", "email", "phone"})
+    private String filter;
+
+    private Connection connection;
+
+    private PreparedStatement page;
+
+    private PreparedStatement count;
+
+    private String username;
+
+    private String term;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.jdbc.url",
+                        "jdbc:mysql://localhost:3306/belajar_spring_restfull_api?rewriteBatchedStatements=true"),
+                System.getProperty("benchmark.jdbc.username", "root"),
+                System.getProperty("benchmark.jdbc.password", ""));
+        username = "bench_" + contacts;
+        seed();
+
+        String where = switch (filter) {
+            case "name" -> backend == ContactSearchBackend.FULLTEXT
+                    ? "match(first_name, last_name) against(? in boolean mode) > 0"
+                    : "(first_name like ? or last_name like ?)";
+            case "email" -> backend == ContactSearchBackend.FULLTEXT
+                    ? "match(email) against(? in boolean mode) > 0"
+                    : "email like ?";
+            default -> "phone_normalized like ?";
+        };
+        String raw = switch (filter) {
+            case "name" -> "amid";
+            case "email" -> "hamidan";
+            default -> "0812345";
+        };
+        if (filter.equals("phone")) {
+            term = PhoneNumbers.normalize(raw) + "%";
+        } else if (backend == ContactSearchBackend.FULLTEXT) {
+            term = ContactSpecifications.phrase(raw);
+        } else {
+            term = "%" + raw + "%";
+        }
+
+        page = connection.prepareStatement(COLUMNS + "where username = ? and " + where + " limit 10");
+        count = connection.prepareStatement("select count(*) from contacts where username = ? and " + where);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void search(Blackhole blackhole) throws SQLException {
+        bind(page);
+        try (ResultSet resultSet = page.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getString(1));
+            }
+        }
+
+        bind(count);
+        try (ResultSet resultSet = count.executeQuery()) {
+            resultSet.next();
+            blackhole.consume(resultSet.getLong(1));
+        }
+    }
+
+    private void bind(PreparedStatement statement) throws SQLException {
+        statement.setString(1, username);
+        statement.setString(2, term);
+        if (backend == ContactSearchBackend.LIKE && filter.equals("name")) {
+            statement.setString(3, term);
+        }
+    }
+
+    private void seed() throws SQLException {
+        try (PreparedStatement existing = connection.prepareStatement("select count(*) from contacts where username = ?")) {
+            existing.setString(1, username);
+            try (ResultSet resultSet = existing.executeQuery()) {
+                resultSet.next();
+                if (resultSet.getLong(1) >= contacts) {
+                    return;
+                }
+            }
+        }
+
+        // a previous seed was interrupted, start over
+        try (PreparedStatement delete = connection.prepareStatement("delete from contacts where username = ?")) {
+            delete.setString(1, username);
+            delete.executeUpdate();
+        }
+
+        try (PreparedStatement user = connection.prepareStatement(
+                "insert ignore into users (username, password, name) values (?, '-', ?)")) {
+            user.setString(1, username);
+            user.setString(2, username);
+            user.executeUpdate();
+        }
+
+        Random random = new Random(contacts);
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into contacts (id, username, first_name, last_name, email, phone, phone_normalized) values (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < contacts; i++) {
+                String firstName = NAMES[random.nextInt(NAMES.length)];
+                String lastName = NAMES[random.nextInt(NAMES.length)];
+                insert.setString(1, username + "_" + i);
+                insert.setString(2, username);
+                insert.setString(3, firstName);
+                insert.setString(4, lastName);
+                insert.setString(5, (firstName + "." + lastName + i + "@example.com").toLowerCase());
+                String phone = "08" + (1000000000L + random.nextInt(1_000_000_000));
+                insert.setString(6, phone);
+                insert.setString(7, PhoneNumbers.normalize(phone));
+                insert.addBatch();
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package fuad.hamidan.repository;
+
+import fuad.hamidan.entity.Contact;
+import fuad.hamidan.model.SearchContactRequest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.sqm.function.SqmFunctionRegistry;
+import org.hibernate.query.sqm.tree.expression.ValueBindJpaCriteriaParameter;
+import org.hibernate.query.sqm.tree.select.SqmSelectStatement;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ContactSpecificationsTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void phraseQuotesTheStrippedTerm() {
+        assertEquals("\"fuad\"", ContactSpecifications.phrase("  fuad "));
+        assertEquals("\"fuad hamidan\"", ContactSpecifications.phrase("fuad hamidan"));
+        assertEquals("\" fuad \"", ContactSpecifications.phrase("\"fuad\""));
+    }
+
+    @Test
+    void escapeLikeEscapesWildcardsAndTheEscapeCharacter() {
+        assertEquals("fuad", ContactSpecifications.escapeLike("fuad"));
+        assertEquals("100\\%", ContactSpecifications.escapeLike("100%"));
+        assertEquals("first\\_name", ContactSpecifications.escapeLike("first_name"));
+        assertEquals("a\\\\b", ContactSpecifications.escapeLike("a\\b"));
+        assertEquals("\\\\\\%", ContactSpecifications.escapeLike("\\%"));
+    }
+
+    @Test
+    void fulltextMatchesIndexableTerms() {
+        SearchContactRequest request = SearchContactRequest.builder().name("fuad").email("gmail").build();
+
+        String hql = hql(ContactSpecifications.fulltext("admin", request));
+        assertTrue(hql.contains("match_against2("), hql);
+        assertTrue(hql.contains("match_against("), hql);
+        assertFalse(hql.contains(" like "), hql);
+        assertEquals(Set.of("admin", "\"fuad\"", "\"gmail\"", 0.0), values(ContactSpecifications.fulltext("admin", request)));
+    }
+
+    @Test
+    void fulltextFallsBackToLikeForShortTerms() {
+        SearchContactRequest request = SearchContactRequest.builder().name("f").email("g").build();
+
+        String hql = hql(ContactSpecifications.fulltext("admin", request));
+        assertFalse(hql.contains("match_against"), hql);
+        assertTrue(hql.contains(" like "), hql);
+    }
+
+    @Test
+    void matchAgainstIsRegistered() {
+        SqmFunctionRegistry functions = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getQueryEngine()
+                .getSqmFunctionRegistry();
+
+        assertNotNull(functions.findFunctionDescriptor("match_against"));
+        assertNotNull(functions.findFunctionDescriptor("match_against2"));
+    }
+
+    private String hql(Specification<Contact> specification) {
+        return ((SqmSelectStatement<?>) query(specification)).toHqlString();
+    }
+
+    private Set<Object> values(Specification<Contact> specification) {
+        return ((SqmSelectStatement<?>) query(specification)).getSqmParameters().stream()
+                .filter(ValueBindJpaCriteriaParameter.class::isInstance)
+                .map(parameter -> ((ValueBindJpaCriteriaParameter<?>) parameter).getValue())
+                .collect(Collectors.toSet());
+    }
+
+    private CriteriaQuery<Contact> query(Specification<Contact> specification) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Contact> query = builder.createQuery(Contact.class);
+        Root<Contact> root = query.from(Contact.class);
+        query.select(root).where(specification.toPredicate(root, query, builder));
+        return query;
+    }
+}
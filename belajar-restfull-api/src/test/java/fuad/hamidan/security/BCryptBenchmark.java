@@ -0,0 +1,59 @@
+package fuad.hamidan.security;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with {@code mvn -Pbenchmark -DskipTests verify -Dbenchmark=BCryptBenchmark},
+ * append {@code -prof gc} through {@code -Dbenchmark="BCryptBenchmark -prof gc"} to see allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BCryptBenchmark {
+
+    @Param({"10", "12"})
+    private int cost;
+
+    private String password;
+
+    private byte[] passwordBytes;
+
+    private byte[] saltBytes;
+
+    private String salt;
+
+    private String hashed;
+
+    @Setup
+    public void setUp() {
+        SecureRandom random = new SecureRandom();
+        password = "correct horse battery staple";
+        passwordBytes = (password + "\0").getBytes(StandardCharsets.UTF_8);
+        saltBytes = new byte[16];
+        random.nextBytes(saltBytes);
+        salt = BCrypt.gensalt(cost, random);
+        hashed = BCrypt.hashpw(password, salt);
+    }
+
+    @Benchmark
+    public byte[] cryptRaw() {
+        return BCrypt.crypt_raw(passwordBytes, saltBytes, cost);
+    }
+
+    @Benchmark
+    public String hashpw() {
+        return BCrypt.hashpw(password, salt);
+    }
+
+    @Benchmark
+    public boolean checkpw() {
+        return BCrypt.checkpw(password, hashed);
+    }
+}
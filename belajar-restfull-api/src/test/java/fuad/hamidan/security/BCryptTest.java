@@ -0,0 +1,65 @@
+package fuad.hamidan.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BCryptTest {
+
+    // password and expected hash; the salt is the first 29 characters of the hash
+    private static final List<String[]> VECTORS = List.of(
+            new String[]{"", "$2a$06$DCq7YPn5Rq63x1Lad4cll.TV4S6ytwfsfvkgY8jIucDrjc8deX1s."},
+            new String[]{"", "$2a$08$HqWuK6/Ng6sg9gQzbLrgb.Tl.ZHfXLhvt/SgVyWhQqgqcZ7ZuUtye"},
+            new String[]{"a", "$2a$06$m0CrhHm10qJ3lXRY.5zDGO3rS2KdeeWLuGmsfGlMfOxih58VYVfxe"},
+            new String[]{"abc", "$2a$06$If6bvum7DFjUnE9p2uDeDu0YHzrHM6tf.iqN8.yx.jNN1ILEf7h0i"},
+            new String[]{"abcdefghijklmnopqrstuvwxyz", "$2a$06$.rCVZVOThsIa97pEDOxvGuRRgzG64bvtJ0938xuqzv18d3ZpQhstC"},
+            new String[]{"~!@#$%^&*()      ~!@#$%^&*()PNBFRD", "$2a$06$fPIsBO8qRqkjj273rfaOI.HtSV9jLDpTbZn782DC6/t7qT67P6FfO"},
+            new String[]{"", "$2b$06$DCq7YPn5Rq63x1Lad4cll.TV4S6ytwfsfvkgY8jIucDrjc8deX1s."},
+            new String[]{"abc", "$2b$06$If6bvum7DFjUnE9p2uDeDu0YHzrHM6tf.iqN8.yx.jNN1ILEf7h0i"},
+            new String[]{"", "$2y$06$DCq7YPn5Rq63x1Lad4cll.TV4S6ytwfsfvkgY8jIucDrjc8deX1s."},
+            new String[]{"abc", "$2y$06$If6bvum7DFjUnE9p2uDeDu0YHzrHM6tf.iqN8.yx.jNN1ILEf7h0i"},
+            new String[]{"★★★", "$2a$05$/OK.fbVrR/bpIqNJ5ianF.nTd3ljXbGt6zGhV2mW4XKYBcVMu/xcq"},
+            new String[]{"★★★", "$2b$05$/OK.fbVrR/bpIqNJ5ianF.nTd3ljXbGt6zGhV2mW4XKYBcVMu/xcq"},
+            new String[]{"★★★", "$2y$05$/OK.fbVrR/bpIqNJ5ianF.nTd3ljXbGt6zGhV2mW4XKYBcVMu/xcq"}
+    );
+
+    @Test
+    void hashpwMatchesKnownAnswers() {
+        for (String[] vector : VECTORS) {
+            assertEquals(vector[1], BCrypt.hashpw(vector[0], vector[1].substring(0, 29)), vector[1]);
+            assertTrue(BCrypt.checkpw(vector[0], vector[1]), vector[1]);
+            assertFalse(BCrypt.checkpw(vector[0] + "x", vector[1]), vector[1]);
+        }
+    }
+
+    @Test
+    void reusedStateDoesNotLeakBetweenCalls() {
+        // the engine, key schedule and buffers are reused per thread, so mix lengths, costs and versions
+        String longPassword = "0123456789".repeat(7) + "ab";
+        String longHash = "$2b$05$/OK.fbVrR/bpIqNJ5ianF.u5TdiZ5Xno7QbDXiX9r4qFs8YM1Rff2";
+
+        for (int round = 0; round < 3; round++) {
+            for (String[] vector : VECTORS) {
+                assertEquals(vector[1], BCrypt.hashpw(vector[0], vector[1].substring(0, 29)), vector[1]);
+                assertEquals(longHash, BCrypt.hashpw(longPassword, "$2b$05$/OK.fbVrR/bpIqNJ5ianF."));
+            }
+        }
+
+        // 72 bytes is the most BCrypt takes, every one of them counts
+        assertTrue(BCrypt.checkpw(longPassword, longHash));
+        assertFalse(BCrypt.checkpw(longPassword.substring(0, 71), longHash));
+        assertThrows(IllegalArgumentException.class, () -> BCrypt.hashpw(longPassword + "c", "$2b$05$/OK.fbVrR/bpIqNJ5ianF."));
+    }
+
+    @Test
+    void gensaltProducesVerifiableHashes() {
+        for (String prefix : List.of("$2a", "$2b", "$2y")) {
+            String hash = BCrypt.hashpw("fuad", BCrypt.gensalt(prefix, 4));
+            assertTrue(hash.startsWith(prefix + "$04$"), hash);
+            assertTrue(BCrypt.checkpw("fuad", hash));
+            assertFalse(BCrypt.checkpw("hamidan", hash));
+        }
+    }
+}
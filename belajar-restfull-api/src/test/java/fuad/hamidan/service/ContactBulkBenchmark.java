@@ -0,0 +1,94 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.BelajarSpringResTfullApiApplication;
+import fuad.hamidan.entity.User;
+import fuad.hamidan.model.CreateContactRequest;
+import fuad.hamidan.repository.UserRepository;
+import fuad.hamidan.security.UserPrincipal;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second through {@link ContactService#createContact} one by one versus {@link ContactService#createContacts},
+ * against the database configured in {@code application.properties}.
+ * Run with {@code mvn -Pbenchmark -DskipTests verify -Dbenchmark=ContactBulkBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ContactBulkBenchmark {
+
+    private static final String USERNAME = "bench_bulk";
+
+    private static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+
+    private ContactService contactService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private UserPrincipal principal;
+
+    private List<CreateContactRequest> requests;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BelajarSpringResTfullApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.properties.hibernate.show_sql=false", "logging.level.fuad.hamidan=WARN")
+                .run();
+        contactService = context.getBean(ContactService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        if (!userRepository.existsById(USERNAME)) {
+            userRepository.save(new User(USERNAME, "-", USERNAME, null, null, 0L, null));
+        }
+        principal = new UserPrincipal(USERNAME, USERNAME, null, null);
+
+        requests = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            requests.add(CreateContactRequest.builder()
+                    .firstName("Fuad " + i)
+                    .lastName("Hamidan")
+                    .email("fuad" + i + "@example.com")
+                    .phone("0812" + i)
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteContacts() {
+        jdbcTemplate.update("delete from contacts where username = ?", USERNAME);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void single() {
+        for (CreateContactRequest request : requests) {
+            contactService.createContact(principal, request);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Object bulk() {
+        return contactService.createContacts(principal, requests);
+    }
+}
@@ -0,0 +1,148 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.model.ContactResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactSuggestIndexTest {
+
+    private static final List<String> QUERIES = List.of("a", "an", "b", "bu", "c", "d", "ex", "k", "s", "sa", "z");
+
+    private static final List<String> NAMES = List.of("Ana", "Andi", "Budi", "Bunga", "Citra", "Dewi", "Kartika", "Sari", "Santo", "Zaïd");
+
+    @Test
+    void mergedWritesMatchAReload() {
+        ContactSuggestIndex index = index(DataSize.ofMegabytes(1));
+        Map<String, ContactResponse> contacts = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            contacts.put("c" + i, contact("c" + i, new Random(i)));
+        }
+        index.suggest("admin", "a", 1, max -> new ArrayList<>(contacts.values()), this::noFallback);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            String id = "c" + random.nextInt(30);
+            if (random.nextInt(3) == 0) {
+                contacts.remove(id);
+                index.remove("admin", List.of(id));
+            } else {
+                ContactResponse contact = contact(id, random);
+                contacts.put(id, contact);
+                index.put("admin", contact);
+            }
+        }
+
+        ContactSuggestIndex reloaded = index(DataSize.ofMegabytes(1));
+        for (String query : QUERIES) {
+            assertEquals(ids(reloaded.suggest("admin", query, 100, max -> new ArrayList<>(contacts.values()), this::noFallback)),
+                    ids(index.suggest("admin", query, 100, max -> fail("index was dropped"), this::noFallback)),
+                    query);
+        }
+        assertEquals(reloaded.memory(), index.memory());
+    }
+
+    @Test
+    void oversizedIndexFallsBackToTheDatabase() {
+        ContactSuggestIndex index = index(DataSize.ofBytes(1024));
+        List<ContactResponse> contacts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            contacts.add(contact("c" + i, new Random(i)));
+        }
+
+        AtomicInteger loads = new AtomicInteger();
+        AtomicInteger fallbacks = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            index.suggest("admin", "a", 5, max -> {
+                loads.incrementAndGet();
+                // every contact costs at least 160 bytes, so no more than 6 can fit and the 7th tells it is too large
+                assertEquals(7, max);
+                return contacts.subList(0, max);
+            }, (prefix, limit) -> {
+                fallbacks.incrementAndGet();
+                assertEquals("a", prefix);
+                assertEquals(5, limit);
+                return List.of();
+            });
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(3, fallbacks.get());
+        assertTrue(index.memory() <= 1024);
+
+        index.put("admin", contact("c0", new Random(0)));
+        index.invalidate("admin");
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void concurrentFirstLookupsLoadOnce() throws Exception {
+        ContactSuggestIndex index = index(DataSize.ofMegabytes(1));
+        List<ContactResponse> contacts = List.of(contact("c0", new Random(0)), contact("c1", new Random(1)));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<ContactResponse>>> lookups = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                lookups.add(executor.submit(() -> index.suggest("admin", "a", 10, max -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        assertTrue(release.await(10, TimeUnit.SECONDS));
+                    } catch (InterruptedException exception) {
+                        throw new IllegalStateException(exception);
+                    }
+                    return contacts;
+                }, this::noFallback)));
+            }
+
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            // let the other lookups reach the index before the load finishes
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<List<ContactResponse>> lookup : lookups) {
+                lookup.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, index.size());
+    }
+
+    private ContactSuggestIndex index(DataSize maxMemory) {
+        return new ContactSuggestIndex(maxMemory, new SimpleMeterRegistry());
+    }
+
+    private List<ContactResponse> noFallback(String prefix, int limit) {
+        return fail("fell back to the database");
+    }
+
+    private static ContactResponse contact(String id, Random random) {
+        String firstName = NAMES.get(random.nextInt(NAMES.size()));
+        String lastName = NAMES.get(random.nextInt(NAMES.size()));
+        return new ContactResponse(id, firstName, lastName, firstName.toLowerCase() + "." + id + "@example.com", null);
+    }
+
+    private static List<String> ids(List<ContactResponse> contacts) {
+        return contacts.stream().map(ContactResponse::getId).sorted().toList();
+    }
+}
@@ -0,0 +1,33 @@
+package fuad.hamidan.service;
+
+import fuad.hamidan.model.AddressResponse;
+import fuad.hamidan.model.ContactResponse;
+import fuad.hamidan.model.VersionedContact;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalContactCacheTest {
+
+    @Test
+    void callersNeverShareTheCachedContact() {
+        LocalContactCache cache = new LocalContactCache(10, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        VersionedContact contact = new VersionedContact("c0", "Fuad", "Hamidan", "fuad@example.com", "0812", 1L);
+        cache.put("admin", contact, cache.generation("admin", "c0"));
+
+        contact.contact().setFirstName("changed by the writer");
+        ContactResponse first = cache.get("admin", "c0").orElseThrow().contact();
+        assertEquals("Fuad", first.getFirstName());
+
+        first.setFirstName("changed by a reader");
+        first.setAddresses(List.of(AddressResponse.builder().id("a0").country("Indonesia").build()));
+        ContactResponse second = cache.get("admin", "c0").orElseThrow().contact();
+        assertNotSame(first, second);
+        assertEquals("Fuad", second.getFirstName());
+        assertNull(second.getAddresses());
+    }
+}